@@ -1,23 +1,42 @@
 package FoundryNorth.litebansDiscordLink;
 
+import FoundryNorth.litebansDiscordLink.command.HistoryLookup;
+import FoundryNorth.litebansDiscordLink.command.LdlCommand;
+import FoundryNorth.litebansDiscordLink.database.ChangeLogPoller;
 import FoundryNorth.litebansDiscordLink.database.DatabaseManager;
 import FoundryNorth.litebansDiscordLink.database.PunishmentTracker;
 import FoundryNorth.litebansDiscordLink.discord.DiscordManager;
+import FoundryNorth.litebansDiscordLink.discord.DiscordOutbox;
+import FoundryNorth.litebansDiscordLink.jfr.ExpiryBatchEvent;
+import FoundryNorth.litebansDiscordLink.listener.LinkedAccountBackfill;
+import FoundryNorth.litebansDiscordLink.listener.LitebansCatchUp;
 import FoundryNorth.litebansDiscordLink.listener.LitebansListener;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import FoundryNorth.litebansDiscordLink.metrics.Histogram;
+import FoundryNorth.litebansDiscordLink.metrics.MetricsExporter;
+import FoundryNorth.litebansDiscordLink.metrics.MetricsRegistry;
 import FoundryNorth.litebansDiscordLink.util.PunishmentLogger;
-import org.bukkit.Bukkit;
+import FoundryNorth.litebansDiscordLink.util.TaskScheduler;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public final class LitebansDiscordLink extends JavaPlugin {
 
     private DatabaseManager database;
     private PunishmentTracker tracker;
+    private ChangeLogPoller changeLogPoller;
     private DiscordManager discordManager;
+    private DiscordOutbox outbox;
     private LitebansListener litebansListener;
+    private LitebansCatchUp litebansCatchUp;
+    private LinkedAccountBackfill backfill;
     private PunishmentLogger punishmentLogger;
+    private MetricsRegistry metrics;
+    private TaskScheduler scheduler;
+    private MetricsExporter metricsExporter;
     private boolean debug;
 
     @Override
@@ -26,106 +45,217 @@ public final class LitebansDiscordLink extends JavaPlugin {
         saveDefaultConfig();
         debug = getConfig().getBoolean("debug", false);
 
-        // Initialize database
+        // Initialize metrics and scheduler
+        metrics = new MetricsRegistry();
+        scheduler = new TaskScheduler(this);
+
+        // Create the components; nothing here connects to the database or Discord yet
         database = new DatabaseManager(this);
+        if (getConfig().getString("tracker.mode", "full").equalsIgnoreCase("cached")) {
+            int cacheSize = getConfig().getInt("tracker.cache-size", 50000);
+            long negativeTtl = getConfig().getLong("tracker.negative-ttl", 60) * 1000L; // Convert seconds to ms
+            tracker = new PunishmentTracker(database, cacheSize, negativeTtl);
+        } else {
+            tracker = new PunishmentTracker(database);
+        }
+        changeLogPoller = new ChangeLogPoller(this, database, tracker);
+
+        // Initialize punishment logger
+        punishmentLogger = new PunishmentLogger(this);
+        if (getConfig().getBoolean("logging.enabled", true)) {
+            getLogger().info(
+                    "Punishment logging enabled: logs/" + getConfig().getString("logging.filename", "punishments.log"));
+        }
+
+        // Initialize Discord manager and the outbox that carries out its actions
+        discordManager = new DiscordManager(this, tracker);
+        outbox = new DiscordOutbox(this, database, discordManager);
+
+        // Register Litebans listener; events are held back until the database is ready
+        litebansListener = new LitebansListener(this, database);
+        litebansListener.register();
+        litebansCatchUp = new LitebansCatchUp(this, database, litebansListener);
+
+        // On-demand backfill of already-linked accounts (/ldl backfill)
+        backfill = new LinkedAccountBackfill(this, database);
+
+        // Register admin command
+        LdlCommand ldlCommand = new LdlCommand(this, new HistoryLookup(this, database));
+        getCommand("ldl").setExecutor(ldlCommand);
+        getCommand("ldl").setTabCompleter(ldlCommand);
+
+        // Start metrics endpoint
+        metricsExporter = new MetricsExporter(this, metrics);
+        metricsExporter.start();
+
+        // Connect to the database and load state on a worker thread, so a slow database
+        // does not hold up server startup
+        scheduler.runAsync(this::startServices);
+    }
+
+    /**
+     * Connect to the database, load the tracker and start the background work (runs on a worker thread)
+     */
+    private void startServices() {
         try {
             database.initialize();
         } catch (SQLException e) {
             getLogger().severe("Failed to connect to database! Plugin will be disabled.");
             getLogger().severe("Error: " + e.getMessage());
-            getServer().getPluginManager().disablePlugin(this);
+            scheduler.runGlobal(() -> getServer().getPluginManager().disablePlugin(this));
             return;
         }
 
-        // Initialize punishment tracker
-        tracker = new PunishmentTracker(database);
-        getLogger().info("Punishment tracker initialized");
+        // Load the in-memory view
+        changeLogPoller.initialize();
+        if (tracker.isCached()) {
+            getLogger().info("Punishment tracker initialized (cached mode)");
+        } else {
+            getLogger().info("Punishment tracker initialized (" + tracker.size() + " active punishment(s))");
+        }
 
-        // Initialize punishment logger
-        punishmentLogger = new PunishmentLogger(this);
-        if (getConfig().getBoolean("logging.enabled", true)) {
-            getLogger().info(
-                    "Punishment logging enabled: logs/" + getConfig().getString("logging.filename", "punishments.log"));
+        // Keep in sync with other servers sharing the database
+        long pollInterval = getConfig().getLong("sync.changelog-poll-interval", 5);
+        scheduler.runAsyncTimer(changeLogPoller::poll, pollInterval, pollInterval, TimeUnit.SECONDS);
+
+        // Periodically save a snapshot of the in-memory view for a fast restart
+        long snapshotInterval = getConfig().getLong("sync.snapshot-interval", 10);
+        if (snapshotInterval > 0) {
+            scheduler.runAsyncTimer(changeLogPoller::saveSnapshot, snapshotInterval, snapshotInterval,
+                    TimeUnit.MINUTES);
         }
 
-        // Initialize Discord manager
-        discordManager = new DiscordManager(this, tracker);
+        // Drop users who are no longer punished from the cached mode pre-check filter
+        long filterRebuildInterval = getConfig().getLong("tracker.filter-rebuild-interval", 60);
+        if (tracker.isCached() && filterRebuildInterval > 0) {
+            scheduler.runAsyncTimer(tracker::rebuildFilter, filterRebuildInterval, filterRebuildInterval,
+                    TimeUnit.MINUTES);
+        }
 
-        // Wait a bit for DiscordSRV to fully load, then initialize
-        long initDelay = getConfig().getLong("discordsrv-init-delay", 2) * 20L; // Convert seconds to ticks
-        Bukkit.getScheduler().runTaskLater(this, () -> {
-            discordManager.initialize();
-        }, initDelay);
+        // Add upcoming monthly history partitions and drop the ones past retention
+        int historyRetention = getConfig().getInt("history.retention-months", 12);
+        scheduler.runAsyncTimer(() -> database.maintainHistoryPartitions(historyRetention), 1, 1, TimeUnit.DAYS);
 
-        // Register Litebans listener
-        litebansListener = new LitebansListener(this);
-        litebansListener.register();
+        // Carry out Discord actions recorded with punishment changes, retrying failures
+        outbox.start();
+
+        // Hook into DiscordSRV; Discord listeners attach once it reports ready
+        discordManager.initialize();
+        discordManager.logSettings();
+
+        // Catch up on punishments issued while we were not listening, then keep checking periodically
+        long catchUpInterval = getConfig().getLong("catch-up.interval", 60);
+        scheduler.runAsyncTimer(litebansCatchUp::run, 0, catchUpInterval, TimeUnit.SECONDS);
 
         // Start punishment expiry checker
-        long expiryCheckInterval = getConfig().getLong("expiry-check-interval", 5) * 60 * 20L; // Convert minutes to
-                                                                                               // ticks
-        Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> {
-            // Get expired punishments before removing them
-            Map<String, PunishmentTracker.PunishmentInfo> expired = tracker.getExpiredPunishments();
-
-            // Remove Discord roles and mutes for expired punishments
-            if (!expired.isEmpty()) {
-                for (Map.Entry<String, PunishmentTracker.PunishmentInfo> entry : expired.entrySet()) {
-                    String discordId = entry.getKey();
-                    PunishmentTracker.PunishmentInfo info = entry.getValue();
-
-                    // Log expiry
-                    punishmentLogger.logExpiry(discordId, info.getType(), info.getMinecraftName());
-
-                    // Remove Discord enforcement
-                    Bukkit.getScheduler().runTask(this, () -> {
-                        discordManager.removeDiscordEnforcement(discordId, info);
-                    });
+        Counter expiryClaimed = metrics.counter("ldl_expiry_rows_claimed_total",
+                "Expired punishments picked up by the expiry task");
+        Histogram expiryLag = metrics.histogram("ldl_expiry_lag_seconds",
+                "Delay between a punishment expiring and the expiry task processing it", Histogram.LAG_BUCKETS);
+        long expiryCheckInterval = getConfig().getLong("expiry-check-interval", 5);
+        int expiryBatchSize = Math.max(1, getConfig().getInt("expiry-batch-size", 500));
+        scheduler.runAsyncTimer(() -> {
+            ExpiryBatchEvent batchEvent = new ExpiryBatchEvent();
+            batchEvent.begin();
+
+            // Claim expired punishments in batches; each batch is logged as one write and its
+            // Discord enforcement is queued straight from this worker (JDA does not need the main thread)
+            int total = 0;
+            int batches = 0;
+            Map<String, PunishmentTracker.PunishmentInfo> expired;
+            do {
+                expired = tracker.claimExpired(expiryBatchSize);
+                if (expired.isEmpty()) {
+                    break;
+                }
+                batches++;
+                total += expired.size();
+                expiryClaimed.add(expired.size());
+
+                long now = System.currentTimeMillis();
+                for (PunishmentTracker.PunishmentInfo info : expired.values()) {
+                    expiryLag.observeNanos(Math.max(0, now - info.getExpiryTime()) * 1_000_000L);
                 }
+
+                punishmentLogger.logExpiries(expired);
+            } while (expired.size() == expiryBatchSize && isEnabled());
+
+            // Claiming queued the enforcement removals in the outbox
+            if (total > 0) {
+                outbox.wake();
             }
 
-            // Clean from database
-            int removed = tracker.cleanExpired();
-            if (removed > 0 && debug) {
-                getLogger().info("Cleaned " + removed + " expired punishment(s)");
+            if (total > 0 && debug) {
+                getLogger().info("Processed " + total + " expired punishment(s) in " + batches + " batch(es)");
             }
-        }, expiryCheckInterval, expiryCheckInterval);
 
-        getLogger().info("LitebansDiscordLink enabled successfully!");
-        getLogger().info("Expiry check interval: " + getConfig().getLong("expiry-check-interval", 5) + " minutes");
+            batchEvent.end();
+            if (batchEvent.shouldCommit()) {
+                batchEvent.expired = total;
+                batchEvent.batches = batches;
+                batchEvent.commit();
+            }
+        }, expiryCheckInterval, expiryCheckInterval, TimeUnit.MINUTES);
 
-        // Log configuration
-        String roleId = getConfig().getString("muted-role-id", "0");
-        if (roleId.equals("0") || roleId.isEmpty()) {
-            getLogger().warning("No muted role configured! Only message deletion will be used.");
-            getLogger().warning("Set 'muted-role-id' in config.yml to enable role-based enforcement.");
-        } else {
-            getLogger().info("Muted role ID: " + roleId);
-        }
+        // Handle the LiteBans events that arrived while starting
+        litebansListener.ready();
 
-        if (getConfig().getBoolean("apply-server-mute", true)) {
-            getLogger().info("Server mute enforcement: ENABLED");
-        } else {
-            getLogger().info("Server mute enforcement: DISABLED");
-        }
+        getLogger().info("LitebansDiscordLink enabled successfully!");
+        getLogger().info("Expiry check interval: " + getConfig().getLong("expiry-check-interval", 5) + " minutes");
     }
 
     @Override
     public void onDisable() {
-        // Unregister Litebans listener
+        // Everything below shares one deadline, so a restart is never held up for long
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(getConfig().getLong("shutdown-timeout", 10));
+        boolean drained = true;
+
+        // Stop taking in new work
         if (litebansListener != null) {
             litebansListener.unregister();
         }
-
-        // Unregister Discord listener
         if (discordManager != null) {
             discordManager.unregister();
         }
 
-        // Cancel all tasks
-        Bukkit.getScheduler().cancelTasks(this);
+        // Send coalesced DMs now and give the outbox a last pass
+        if (discordManager != null) {
+            discordManager.flushMessages();
+        }
+        if (outbox != null) {
+            outbox.wake();
+        }
 
-        // Close database connection
+        // Stop repeating tasks and let queued work finish
+        if (scheduler != null) {
+            drained = scheduler.shutdown(remainingMillis(deadline));
+        }
+
+        // Let Discord requests already sent complete
+        if (discordManager != null) {
+            drained &= discordManager.awaitRequests(remainingMillis(deadline));
+        }
+        if (!drained) {
+            getLogger().warning("Shutdown deadline reached with work in progress; unfinished Discord actions stay "
+                    + "in the outbox and are retried on the next start");
+        }
+
+        // Save the in-memory view for the next start
+        if (changeLogPoller != null) {
+            changeLogPoller.saveSnapshot();
+        }
+
+        // Stop metrics endpoint
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+
+        // Flush punishment log
+        if (punishmentLogger != null) {
+            punishmentLogger.close(remainingMillis(deadline));
+        }
+
+        // Close database connection; anything written after this is spooled to disk and replayed on the next start
         if (database != null) {
             database.close();
         }
@@ -133,6 +263,10 @@ public final class LitebansDiscordLink extends JavaPlugin {
         getLogger().info("LitebansDiscordLink disabled");
     }
 
+    private static long remainingMillis(long deadlineNanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
     public PunishmentTracker getTracker() {
         return tracker;
     }
@@ -141,10 +275,26 @@ public final class LitebansDiscordLink extends JavaPlugin {
         return discordManager;
     }
 
+    public DiscordOutbox getOutbox() {
+        return outbox;
+    }
+
     public PunishmentLogger getPunishmentLogger() {
         return punishmentLogger;
     }
 
+    public LinkedAccountBackfill getBackfill() {
+        return backfill;
+    }
+
+    public TaskScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
     public boolean isDebug() {
         return debug;
     }
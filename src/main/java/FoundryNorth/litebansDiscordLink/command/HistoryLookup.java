@@ -0,0 +1,169 @@
+package FoundryNorth.litebansDiscordLink.command;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.DatabaseManager;
+import FoundryNorth.litebansDiscordLink.database.HistoryEntry;
+import FoundryNorth.litebansDiscordLink.database.PunishmentTracker;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Serves /ldl history: looks up a player's or Discord user's active and archived punishments
+ * one page at a time on a worker thread, caching recent pages briefly.
+ */
+public class HistoryLookup {
+
+    private static final Pattern DISCORD_ID = Pattern.compile("\\d{15,20}");
+    private static final int MAX_CACHED_PAGES = 100;
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private final LitebansDiscordLink plugin;
+    private final DatabaseManager database;
+    private final int pageSize;
+    private final long cacheMillis;
+    private final Map<String, CachedPage> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    public HistoryLookup(LitebansDiscordLink plugin, DatabaseManager database) {
+        this.plugin = plugin;
+        this.database = database;
+        this.pageSize = Math.max(1, plugin.getConfig().getInt("history.page-size", 10));
+        this.cacheMillis = TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("history.cache-seconds", 30));
+    }
+
+    /**
+     * Send a page of history to the sender
+     *
+     * @param target   Player name, Minecraft UUID or Discord ID
+     * @param beforeId Pagination cursor from the previous page, or 0 for the first page
+     */
+    public void show(CommandSender sender, String label, String target, long beforeId) {
+        boolean byDiscordId = DISCORD_ID.matcher(target).matches();
+        String key = byDiscordId ? target : resolveUuid(target);
+        if (key == null) {
+            sender.sendMessage(ChatColor.RED + "Unknown player " + target + ". Use their UUID or Discord ID instead.");
+            return;
+        }
+
+        String cacheKey = (byDiscordId ? "d:" : "u:") + key + ":" + beforeId;
+        List<HistoryEntry> cached = getCached(cacheKey);
+        if (cached != null) {
+            send(sender, label, target, beforeId, cached);
+            return;
+        }
+
+        plugin.getScheduler().runAsync(() -> {
+            List<HistoryEntry> entries;
+            try {
+                entries = database.getHistory(byDiscordId, key, beforeId, pageSize);
+            } catch (SQLException e) {
+                sender.sendMessage(ChatColor.RED + "Could not load history: " + e.getMessage());
+                return;
+            }
+            putCached(cacheKey, entries);
+            send(sender, label, target, beforeId, entries);
+        });
+    }
+
+    /**
+     * Resolve a player name or UUID string without a blocking profile lookup
+     */
+    private String resolveUuid(String target) {
+        try {
+            return UUID.fromString(target).toString();
+        } catch (IllegalArgumentException e) {
+            OfflinePlayer player = Bukkit.getOfflinePlayerIfCached(target);
+            return player != null ? player.getUniqueId().toString() : null;
+        }
+    }
+
+    private void send(CommandSender sender, String label, String target, long beforeId, List<HistoryEntry> entries) {
+        if (entries.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + (beforeId <= 0 ? "No punishment history for " : "No older history for ")
+                    + target);
+            return;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "Punishment history for " + target + ":");
+        long lastId = 0;
+        int archived = 0;
+        for (HistoryEntry entry : entries) {
+            sender.sendMessage(format(entry));
+            if (!entry.isActive()) {
+                lastId = entry.getId();
+                archived++;
+            }
+        }
+        if (archived == pageSize) {
+            sender.sendMessage(ChatColor.GRAY + "Older entries: /" + label + " history " + target + " " + lastId);
+        }
+    }
+
+    private String format(HistoryEntry entry) {
+        PunishmentTracker.PunishmentInfo info = entry.getPunishment();
+        String status;
+        if (entry.isActive()) {
+            status = ChatColor.RED + "ACTIVE" + ChatColor.GRAY + (info.isPermanent() ? ", permanent"
+                    : ", until " + DATE_FORMAT.format(Instant.ofEpochMilli(info.getExpiryTime())));
+        } else {
+            status = ChatColor.GREEN + entry.getEndReason() + ChatColor.GRAY + " "
+                    + DATE_FORMAT.format(Instant.ofEpochMilli(entry.getEndedAt()));
+        }
+
+        return ChatColor.YELLOW + info.getType().toUpperCase() + ChatColor.GRAY + " "
+                + DATE_FORMAT.format(Instant.ofEpochMilli(info.getIssuedTime())) + " "
+                + ChatColor.WHITE + info.getMinecraftName() + ChatColor.GRAY + " (" + entry.getDiscordId() + ") "
+                + status + ChatColor.GRAY + ": " + (info.getReason() != null ? info.getReason() : "No reason");
+    }
+
+    private List<HistoryEntry> getCached(String cacheKey) {
+        synchronized (cache) {
+            CachedPage page = cache.get(cacheKey);
+            if (page == null) {
+                return null;
+            }
+            if (page.expiresAt <= System.currentTimeMillis()) {
+                cache.remove(cacheKey);
+                return null;
+            }
+            return page.entries;
+        }
+    }
+
+    private void putCached(String cacheKey, List<HistoryEntry> entries) {
+        if (cacheMillis <= 0) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(cacheKey, new CachedPage(entries, System.currentTimeMillis() + cacheMillis));
+        }
+    }
+
+    private static class CachedPage {
+        private final List<HistoryEntry> entries;
+        private final long expiresAt;
+
+        CachedPage(List<HistoryEntry> entries, long expiresAt) {
+            this.entries = entries;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
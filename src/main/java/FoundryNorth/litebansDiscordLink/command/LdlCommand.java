@@ -0,0 +1,111 @@
+package FoundryNorth.litebansDiscordLink.command;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.listener.LinkedAccountBackfill;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handles the /ldl admin command
+ */
+public class LdlCommand implements TabExecutor {
+
+    private static final List<String> SUBCOMMANDS = List.of("stats", "backfill", "history");
+
+    private final LitebansDiscordLink plugin;
+    private final HistoryLookup history;
+
+    public LdlCommand(LitebansDiscordLink plugin, HistoryLookup history) {
+        this.plugin = plugin;
+        this.history = history;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage(ChatColor.YELLOW + "Usage: /" + label + " <" + String.join("|", SUBCOMMANDS) + ">");
+            return true;
+        }
+
+        switch (args[0].toLowerCase()) {
+            case "stats":
+                handleStats(sender);
+                break;
+            case "backfill":
+                handleBackfill(sender, args);
+                break;
+            case "history":
+                handleHistory(sender, label, args);
+                break;
+            default:
+                sender.sendMessage(ChatColor.RED + "Unknown subcommand: " + args[0]);
+                break;
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            for (String sub : SUBCOMMANDS) {
+                if (sub.startsWith(args[0].toLowerCase())) {
+                    completions.add(sub);
+                }
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * Print a summary of the plugin metrics
+     */
+    private void handleStats(CommandSender sender) {
+        sender.sendMessage(ChatColor.GOLD + "LitebansDiscordLink statistics:");
+        for (String line : plugin.getMetrics().summary()) {
+            sender.sendMessage(ChatColor.GRAY + "  " + line);
+        }
+    }
+
+    /**
+     * Start a backfill of linked accounts, or report the progress of a running one
+     */
+    private void handleBackfill(CommandSender sender, String[] args) {
+        LinkedAccountBackfill backfill = plugin.getBackfill();
+        if (backfill.isRunning()) {
+            sender.sendMessage(ChatColor.YELLOW + "Backfill in progress: " + backfill.getProgress());
+            return;
+        }
+
+        boolean restart = args.length > 1 && args[1].equalsIgnoreCase("restart");
+        backfill.start(restart);
+        sender.sendMessage(ChatColor.GREEN + "Backfill started" + (restart ? " from the beginning" : "")
+                + ". Run /ldl backfill again to check progress.");
+    }
+
+    /**
+     * Show a page of a player's or Discord user's punishment history
+     */
+    private void handleHistory(CommandSender sender, String label, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.YELLOW + "Usage: /" + label + " history <player|uuid|discordId> [cursor]");
+            return;
+        }
+
+        long beforeId = 0;
+        if (args.length > 2) {
+            try {
+                beforeId = Long.parseLong(args[2]);
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid page cursor: " + args[2]);
+                return;
+            }
+        }
+        history.show(sender, label, args[1], beforeId);
+    }
+}
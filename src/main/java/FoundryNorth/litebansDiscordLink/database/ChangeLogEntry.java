@@ -0,0 +1,38 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+/**
+ * A row of the punishment change log
+ */
+public class ChangeLogEntry {
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    private final long seq;
+    private final String discordId;
+    private final String operation;
+    private final String nodeId;
+
+    public ChangeLogEntry(long seq, String discordId, String operation, String nodeId) {
+        this.seq = seq;
+        this.discordId = discordId;
+        this.operation = operation;
+        this.nodeId = nodeId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getDiscordId() {
+        return discordId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
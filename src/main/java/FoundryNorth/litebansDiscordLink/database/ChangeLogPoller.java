@@ -0,0 +1,275 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the tracker's in-memory view coherent with other servers by polling the
+ * change log past a sequence watermark and re-reading only the rows that changed.
+ * Sequence numbers are assigned before their transaction commits, so a change can become
+ * visible after higher ones; the watermark only moves past a missing sequence once it has
+ * stayed missing for a grace period, and changes above it are re-read but applied once.
+ */
+public class ChangeLogPoller {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int RELOAD_WINDOW = 1000;
+    private static final long PRUNE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final String DATABASE_ID_KEY = "database.id";
+
+    private final LitebansDiscordLink plugin;
+    private final DatabaseManager database;
+    private final PunishmentTracker tracker;
+    private final Counter applied;
+    private final long retentionMillis;
+    private final long gapGraceMillis;
+    private final TrackerSnapshot snapshot;
+    private final TreeSet<Long> appliedAhead = new TreeSet<>(); // Applied sequences above the watermark
+    private String databaseId;
+    private volatile long watermark = -1;
+    private long gapSince; // When the sequence after the watermark was first seen missing
+    private long lastPolled;
+    private long lastPrune;
+
+    public ChangeLogPoller(LitebansDiscordLink plugin, DatabaseManager database, PunishmentTracker tracker) {
+        this.plugin = plugin;
+        this.database = database;
+        this.tracker = tracker;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(plugin.getConfig().getLong("sync.changelog-retention", 24));
+        this.gapGraceMillis = TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("sync.changelog-gap-grace", 60));
+        this.snapshot = new TrackerSnapshot(new File(plugin.getDataFolder(), "snapshot/tracker.bin"));
+        this.applied = plugin.getMetrics().counter("ldl_changelog_applied_total",
+                "Change log rows from other servers applied to the in-memory view");
+        plugin.getMetrics().gauge("ldl_changelog_watermark", "Last change log sequence applied", () -> watermark);
+        plugin.getMetrics().gauge("ldl_tracker_punishments", "Punishments in the in-memory view", tracker::size);
+    }
+
+    /**
+     * Load the in-memory view and record the change log position it corresponds to.
+     * A valid snapshot on disk is loaded instead of the full table, followed by the changes since.
+     */
+    public synchronized void initialize() {
+        if (tracker.isCached() || !loadSnapshot()) {
+            reload();
+        }
+    }
+
+    /**
+     * Save the in-memory view and the change log position it reflects to disk
+     */
+    public synchronized void saveSnapshot() {
+        if (watermark < 0 || databaseId == null || tracker.isCached()) {
+            return; // Nothing consistent to save
+        }
+
+        long start = System.nanoTime();
+        try {
+            Map<String, PunishmentTracker.PunishmentInfo> punishments = tracker.getAllPunishments();
+            snapshot.write(databaseId, watermark, punishments);
+            if (plugin.isDebug()) {
+                plugin.getLogger().info("Saved snapshot of " + punishments.size() + " punishment(s) in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to save tracker snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load the snapshot if it belongs to this database and the change log still covers
+     * everything since it was taken, then apply the delta
+     *
+     * @return false if a full reload is needed
+     */
+    private boolean loadSnapshot() {
+        long start = System.nanoTime();
+        try {
+            databaseId = database.getState(DATABASE_ID_KEY);
+            if (databaseId == null) {
+                databaseId = UUID.randomUUID().toString();
+                database.setState(DATABASE_ID_KEY, databaseId);
+                return false; // A fresh database cannot match any snapshot
+            }
+
+            TrackerSnapshot.Data data = snapshot.read();
+            if (data == null) {
+                return false;
+            }
+
+            long head = database.getChangeLogHead();
+            long tail = database.getChangeLogTail();
+            if (!databaseId.equals(data.getDatabaseId()) || data.getSeq() > head || tail > data.getSeq() + 1) {
+                plugin.getLogger().info("Tracker snapshot is out of date, loading punishments from the database");
+                return false;
+            }
+
+            tracker.adopt(data.getPunishments());
+            setWatermark(data.getSeq());
+        } catch (IOException | SQLException e) {
+            plugin.getLogger().warning("Could not use tracker snapshot: " + e.getMessage());
+            return false;
+        }
+
+        poll();
+        plugin.getLogger().info("Loaded " + tracker.size() + " punishment(s) from snapshot in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return watermark >= 0;
+    }
+
+    /**
+     * Apply any changes written by other servers since the last poll
+     */
+    public synchronized void poll() {
+        if (watermark < 0) {
+            reload();
+            return;
+        }
+
+        // Changes we missed while not polling may have been pruned: the deltas are incomplete
+        long now = System.currentTimeMillis();
+        if (lastPolled > 0 && now - lastPolled > retentionMillis - gapGraceMillis) {
+            plugin.getLogger().warning("Change log fell behind retention, reloading punishments");
+            reload();
+            return;
+        }
+
+        try {
+            long cursor = watermark;
+            while (true) {
+                List<ChangeLogEntry> changes = database.getChangesSince(cursor, PAGE_SIZE);
+                if (changes.isEmpty()) {
+                    break;
+                }
+                boolean more = changes.size() == PAGE_SIZE;
+                cursor = changes.get(changes.size() - 1).getSeq();
+
+                // Changes above the watermark are read again until it catches up; apply them once
+                changes.removeIf(change -> appliedAhead.contains(change.getSeq()));
+                if (!apply(changes)) {
+                    break;
+                }
+                for (ChangeLogEntry change : changes) {
+                    appliedAhead.add(change.getSeq());
+                }
+                if (!more) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            if (plugin.isDebug()) {
+                plugin.getLogger().warning("Failed to poll change log: " + e.getMessage());
+            }
+            return;
+        }
+
+        advanceWatermark(now);
+        lastPolled = now;
+
+        if (now - lastPrune > PRUNE_INTERVAL) {
+            lastPrune = now;
+            int pruned = database.pruneChangeLog(now - retentionMillis);
+            if (pruned > 0 && plugin.isDebug()) {
+                plugin.getLogger().info("Pruned " + pruned + " change log row(s)");
+            }
+        }
+    }
+
+    /**
+     * Move the watermark over the applied sequences that follow it. A missing sequence holds it
+     * back until the grace period has passed: by then its transaction has either committed and
+     * been applied, or it was rolled back or never used (InnoDB does not hand out sequences
+     * without gaps) and there is nothing to wait for.
+     */
+    private void advanceWatermark(long now) {
+        while (!appliedAhead.isEmpty()) {
+            long next = appliedAhead.first();
+            if (next > watermark + 1) {
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < gapGraceMillis) {
+                    return;
+                }
+                if (plugin.isDebug()) {
+                    plugin.getLogger().info("Change log sequence(s) " + (watermark + 1) + "-" + (next - 1)
+                            + " never appeared, skipping them");
+                }
+            }
+            appliedAhead.pollFirst();
+            watermark = next;
+            gapSince = 0;
+        }
+    }
+
+    private void setWatermark(long seq) {
+        watermark = seq;
+        appliedAhead.clear();
+        gapSince = 0;
+    }
+
+    /**
+     * Re-read the rows touched by a page of changes and apply them to the tracker
+     *
+     * @return false if the rows could not be read (the watermark must not advance)
+     */
+    private boolean apply(List<ChangeLogEntry> changes) {
+        Set<String> changedIds = new LinkedHashSet<>();
+        for (ChangeLogEntry change : changes) {
+            // Our own writes are already reflected in memory
+            if (!change.getNodeId().equals(database.getNodeId())) {
+                changedIds.add(change.getDiscordId());
+            }
+        }
+
+        if (changedIds.isEmpty()) {
+            return true;
+        }
+
+        Map<String, PunishmentTracker.PunishmentInfo> current = database.getPunishments(changedIds);
+        if (current == null) {
+            return false;
+        }
+
+        for (String discordId : changedIds) {
+            tracker.applyRemote(discordId, current.get(discordId));
+        }
+        applied.add(changedIds.size());
+
+        if (plugin.isDebug()) {
+            plugin.getLogger().info("Applied " + changedIds.size() + " change(s) from other servers");
+        }
+        return true;
+    }
+
+    /**
+     * Full reload of the in-memory view.
+     * Transactions holding sequences below the head may still commit after the table is read,
+     * so polling resumes a window below it; re-applying a change that was already loaded is harmless.
+     * If the database cannot be read, the current view and position are kept and the next poll
+     * tries the reload again.
+     */
+    private void reload() {
+        try {
+            long head = database.getChangeLogHead();
+            if (!tracker.load()) {
+                plugin.getLogger().warning("Failed to reload punishments, keeping the current view");
+                return;
+            }
+            setWatermark(Math.max(0, head - RELOAD_WINDOW));
+            lastPolled = System.currentTimeMillis();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to read change log position: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trips after a number of consecutive database failures so callers can fail fast
+ * instead of blocking on connection timeouts. After a cool-down one probe request
+ * is let through; if it succeeds the breaker closes again. A probe that reports neither
+ * outcome within another cool-down (its caller threw something else or returned early)
+ * counts as failed, so a lost probe cannot keep the breaker half open.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Runnable onClose;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private final AtomicLong probeStartedAt = new AtomicLong();
+    private volatile State state = State.CLOSED;
+
+    /**
+     * @param failureThreshold Consecutive failures before the breaker opens
+     * @param openMillis       How long to stay open before allowing a probe
+     * @param onClose          Called when the breaker closes after being open
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, Runnable onClose) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Check whether a request may go to the database right now
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - openedAt.get() < openMillis) {
+            return false;
+        }
+
+        if (state == State.HALF_OPEN) {
+            long started = probeStartedAt.get();
+            if (now - started >= openMillis && probeStartedAt.compareAndSet(started, 0)) {
+                // The probe never reported back: count it as failed and start a new cool-down
+                trip();
+            }
+            return false;
+        }
+
+        // Cool-down elapsed: let exactly one probe through
+        if (probeInFlight.compareAndSet(false, true)) {
+            probeStartedAt.set(now);
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record a successful database call
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            probeInFlight.set(false);
+            onClose.run();
+        }
+    }
+
+    /**
+     * Record a failed database call
+     *
+     * @return true if this failure opened the breaker
+     */
+    public boolean recordFailure() {
+        if (state == State.HALF_OPEN) {
+            trip();
+            return true;
+        }
+
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state == State.CLOSED) {
+            trip();
+            return true;
+        }
+        return false;
+    }
+
+    private void trip() {
+        openedAt.set(System.currentTimeMillis());
+        state = State.OPEN;
+        probeInFlight.set(false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
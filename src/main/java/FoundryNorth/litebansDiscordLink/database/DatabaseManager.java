@@ -1,28 +1,117 @@
 package FoundryNorth.litebansDiscordLink.database;
 
 import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import FoundryNorth.litebansDiscordLink.metrics.Histogram;
+import FoundryNorth.litebansDiscordLink.metrics.MetricsRegistry;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
 import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 /**
- * Manages MySQL database connections and operations
+ * Manages MySQL database connections and operations.
+ * A circuit breaker stops callers from blocking on an unreachable database: while it is open,
+ * lookups are served from the last known state in memory and writes are spooled to disk for replay.
  */
 public class DatabaseManager {
 
+    private static final String PUNISHMENT_COLUMNS =
+            "discord_id, minecraft_uuid, minecraft_name, type, reason, expiry_time, issued_time, version";
+    private static final String HISTORY_TABLE = "litebansdiscordlink_history";
+    private static final String HISTORY_INSERT = "INSERT INTO " + HISTORY_TABLE + " " +
+            "(discord_id, minecraft_uuid, minecraft_name, type, reason, expiry_time, issued_time, " +
+            "end_reason, ended_at, ended_month) " +
+            "SELECT discord_id, minecraft_uuid, minecraft_name, type, reason, expiry_time, issued_time, ?, ?, ? " +
+            "FROM litebansdiscordlink_punishments WHERE ";
+    private static final int HISTORY_MONTHS_AHEAD = 2;
+    private static final String OUTBOX_INSERT = "INSERT INTO litebansdiscordlink_outbox " +
+            "(discord_id, action, punishment_type, minecraft_name, attempts, next_attempt_at, created_at) " +
+            "SELECT discord_id, ?, type, minecraft_name, 0, ?, ? FROM litebansdiscordlink_punishments WHERE ";
+
+    /**
+     * Outcome of claiming a LiteBans event
+     */
+    public enum Claim {
+        /** This server handles the event */
+        CLAIMED,
+        /** Another server handled or is handling it */
+        TAKEN,
+        /** The database could not decide; try again once it is reachable */
+        UNAVAILABLE
+    }
+
     private final LitebansDiscordLink plugin;
+    private final Histogram queryLatency;
+    private final Counter queryErrors;
+    private final Histogram poolWait;
+    private final Counter degradedReads;
+    private final Counter spooledWrites;
+    private final Counter deadLetters;
+    private final Counter writeConflicts;
+    private final Map<String, PunishmentTracker.PunishmentInfo> lastKnown = new ConcurrentHashMap<>();
+    private final Set<String> pendingIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final WriteSpool spool;
+    private final WriteSpool deadLetter;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean spoolPending;
+    private boolean skipLocked;
+    private CircuitBreaker breaker;
+    private int queryTimeout;
     private HikariDataSource dataSource;
 
     public DatabaseManager(LitebansDiscordLink plugin) {
         this.plugin = plugin;
+        this.spool = new WriteSpool(new File(plugin.getDataFolder(), "spool/pending-writes.log"));
+        this.deadLetter = new WriteSpool(new File(plugin.getDataFolder(), "spool/dead-letter.log"));
+
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.queryLatency = metrics.histogram("ldl_db_query_seconds", "Database statement latency",
+                Histogram.LATENCY_BUCKETS, "statement");
+        this.queryErrors = metrics.counter("ldl_db_query_errors_total", "Database statements that failed",
+                "statement");
+        this.poolWait = metrics.histogram("ldl_db_pool_wait_seconds", "Time spent waiting for a pooled connection",
+                Histogram.LATENCY_BUCKETS);
+        this.degradedReads = metrics.counter("ldl_db_degraded_reads_total",
+                "Lookups served from memory because the database circuit was open");
+        this.spooledWrites = metrics.counter("ldl_db_spooled_writes_total",
+                "Writes spooled to disk because the database was unavailable");
+        this.deadLetters = metrics.counter("ldl_db_dead_letter_writes_total",
+                "Writes the database rejected outright, set aside in the dead-letter file");
+        this.writeConflicts = metrics.counter("ldl_db_write_conflicts_total",
+                "Punishment writes rejected because another writer changed the row first", "operation");
+        metrics.gauge("ldl_db_circuit_open", "1 if the database circuit breaker is open",
+                () -> breaker != null && breaker.isOpen() ? 1 : 0);
     }
 
     /**
@@ -41,11 +130,12 @@ public class DatabaseManager {
         config.setPassword(password);
 
         // Connection pool settings
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(30000);
-        config.setIdleTimeout(600000);
-        config.setMaxLifetime(1800000);
+        config.setMaximumPoolSize(plugin.getConfig().getInt("database.pool.maximum-pool-size", 10));
+        config.setMinimumIdle(plugin.getConfig().getInt("database.pool.minimum-idle", 2));
+        config.setConnectionTimeout(plugin.getConfig().getLong("database.pool.connection-timeout", 5000));
+        config.setIdleTimeout(plugin.getConfig().getLong("database.pool.idle-timeout", 600000));
+        config.setMaxLifetime(plugin.getConfig().getLong("database.pool.max-lifetime", 1800000));
+        queryTimeout = plugin.getConfig().getInt("database.query-timeout", 5);
 
         // MySQL-specific settings
         config.addDataSourceProperty("cachePrepStmts", "true");
@@ -59,11 +149,36 @@ public class DatabaseManager {
         config.addDataSourceProperty("elideSetAutoCommits", "true");
         config.addDataSourceProperty("maintainTimeStats", "false");
 
+        // Record pool wait time and pool usage
+        config.setMetricsTrackerFactory((poolName, poolStats) -> {
+            registerPoolGauges(poolStats);
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    poolWait.observeNanos(elapsedAcquiredNanos);
+                }
+            };
+        });
+
+        // Circuit breaker settings
+        int failureThreshold = plugin.getConfig().getInt("database.circuit-breaker.failure-threshold", 5);
+        long openMillis = plugin.getConfig().getLong("database.circuit-breaker.open-duration", 30) * 1000L;
+        breaker = new CircuitBreaker(failureThreshold, openMillis, () -> {
+            plugin.getLogger().info("Database reachable again, circuit breaker closed");
+            scheduleReplay();
+        });
+
         dataSource = new HikariDataSource(config);
 
         createTables();
 
         plugin.getLogger().info("Database connected successfully!");
+
+        // Replay writes spooled during a previous outage
+        loadSpool();
+        if (spoolPending) {
+            replaySpool();
+        }
     }
 
     /**
@@ -78,21 +193,228 @@ public class DatabaseManager {
                 "reason TEXT," +
                 "expiry_time BIGINT NOT NULL," +
                 "issued_time BIGINT NOT NULL," +
-                "INDEX idx_expiry (expiry_time)" +
+                "version BIGINT NOT NULL DEFAULT 1," +
+                "INDEX idx_expiry (expiry_time)," +
+                "INDEX idx_uuid (minecraft_uuid)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+        // Sequenced log of every write, polled by other servers sharing this table
+        String createChangeLog = "CREATE TABLE IF NOT EXISTS litebansdiscordlink_changelog (" +
+                "seq BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                "discord_id VARCHAR(20) NOT NULL," +
+                "operation VARCHAR(10) NOT NULL," +
+                "node_id VARCHAR(36) NOT NULL," +
+                "changed_at BIGINT NOT NULL," +
+                "INDEX idx_changed_at (changed_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+        // Small key/value store for sync watermarks and cursors
+        String createState = "CREATE TABLE IF NOT EXISTS litebansdiscordlink_state (" +
+                "state_key VARCHAR(64) PRIMARY KEY," +
+                "state_value VARCHAR(255) NOT NULL" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+        // Markers for LiteBans events already handled by one of the servers
+        String createProcessed = "CREATE TABLE IF NOT EXISTS litebansdiscordlink_processed (" +
+                "entry_key VARCHAR(64) PRIMARY KEY," +
+                "node_id VARCHAR(36) NOT NULL," +
+                "processed_at BIGINT NOT NULL," +
+                "done BOOLEAN NOT NULL DEFAULT 1," +
+                "INDEX idx_processed_at (processed_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+        // Ended punishments, partitioned by the month they ended so old history is dropped a
+        // partition at a time. The partition key has to be part of the primary key.
+        String createHistory = "CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " (" +
+                "id BIGINT AUTO_INCREMENT," +
+                "discord_id VARCHAR(20) NOT NULL," +
+                "minecraft_uuid VARCHAR(36) NOT NULL," +
+                "minecraft_name VARCHAR(16) NOT NULL," +
+                "type VARCHAR(10) NOT NULL," +
+                "reason TEXT," +
+                "expiry_time BIGINT NOT NULL," +
+                "issued_time BIGINT NOT NULL," +
+                "end_reason VARCHAR(10) NOT NULL," +
+                "ended_at BIGINT NOT NULL," +
+                "ended_month INT NOT NULL," +
+                "PRIMARY KEY (id, ended_month)," +
+                "INDEX idx_discord (discord_id, id)," +
+                "INDEX idx_uuid (minecraft_uuid, id)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 " +
+                "PARTITION BY RANGE (ended_month) (PARTITION p_future VALUES LESS THAN MAXVALUE)";
+
+        // Discord actions waiting to be carried out, written in the same transaction as the punishment change
+        String createOutbox = "CREATE TABLE IF NOT EXISTS litebansdiscordlink_outbox (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                "discord_id VARCHAR(20) NOT NULL," +
+                "action VARCHAR(10) NOT NULL," +
+                "punishment_type VARCHAR(10) NOT NULL," +
+                "minecraft_name VARCHAR(16) NOT NULL," +
+                "attempts INT NOT NULL," +
+                "next_attempt_at BIGINT NOT NULL," +
+                "created_at BIGINT NOT NULL," +
+                "last_error VARCHAR(255)," +
+                "done_guilds VARCHAR(1024) NOT NULL DEFAULT ''," +
+                "INDEX idx_next_attempt (next_attempt_at)" +
                 ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
 
         try (Connection conn = getConnection();
                 Statement stmt = conn.createStatement()) {
             stmt.execute(createTable);
+            stmt.execute(createChangeLog);
+            stmt.execute(createState);
+            stmt.execute(createProcessed);
+            stmt.execute(createHistory);
+            stmt.execute(createOutbox);
+
+            // Added after the punishments table was first released, so existing tables need it too
+            ensureIndex(conn, "litebansdiscordlink_punishments", "idx_uuid", "minecraft_uuid");
+            ensureColumn(conn, "litebansdiscordlink_punishments", "version", "BIGINT NOT NULL DEFAULT 1");
+            ensureColumn(conn, "litebansdiscordlink_processed", "done", "BOOLEAN NOT NULL DEFAULT 1");
+            ensureColumn(conn, "litebansdiscordlink_outbox", "done_guilds", "VARCHAR(1024) NOT NULL DEFAULT ''");
+
+            String version = conn.getMetaData().getDatabaseProductVersion();
+            skipLocked = supportsSkipLocked(version);
+            if (!skipLocked) {
+                plugin.getLogger().info("Database " + version + " does not support SKIP LOCKED (MySQL 8.0 or "
+                        + "MariaDB 10.6 needed); servers claiming outbox actions will wait on each other's claims");
+            }
+        }
+
+        // Monthly partitions must exist before anything is archived into them
+        maintainHistoryPartitions(plugin.getConfig().getInt("history.retention-months", 12));
+    }
+
+    /**
+     * Check whether a server version supports {@code FOR UPDATE SKIP LOCKED}: MySQL 8.0 or MariaDB 10.6 and later
+     *
+     * @param version The server version, e.g. "8.0.36", "5.7.44-log" or "5.5.5-10.6.16-MariaDB"
+     */
+    static boolean supportsSkipLocked(String version) {
+        if (version == null) {
+            return false;
+        }
+        boolean mariaDb = version.contains("MariaDB");
+        if (mariaDb && version.startsWith("5.5.5-")) {
+            version = version.substring("5.5.5-".length()); // Prefix older clients needed to accept MariaDB 10
+        }
+
+        String[] parts = version.split("[^0-9]+", 3);
+        try {
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return mariaDb ? major > 10 || (major == 10 && minor >= 6) : major >= 8;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Add an index to an existing table if it is missing
+     */
+    private void ensureIndex(Connection conn, String table, String index, String columns) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? LIMIT 1";
+
+        try (PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, index);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD INDEX " + index + " (" + columns + ")");
+        }
+        plugin.getLogger().info("Added index " + index + " to " + table);
+    }
+
+    /**
+     * Add a column to an existing table if it is missing
+     */
+    private void ensureColumn(Connection conn, String table, String column, String definition) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ? LIMIT 1";
+
+        try (PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+        plugin.getLogger().info("Added column " + column + " to " + table);
+    }
+
+    /**
+     * Expose connection pool usage as gauges
+     */
+    private void registerPoolGauges(PoolStats poolStats) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        metrics.gauge("ldl_db_pool_active_connections", "Connections currently in use",
+                poolStats::getActiveConnections);
+        metrics.gauge("ldl_db_pool_idle_connections", "Idle connections in the pool", poolStats::getIdleConnections);
+        metrics.gauge("ldl_db_pool_pending_threads", "Threads waiting for a connection", poolStats::getPendingThreads);
+    }
+
+    /**
+     * Record the latency of a statement
+     */
+    private void recordQuery(String statement, long startNanos) {
+        queryLatency.labels(statement).observeSince(startNanos);
+    }
+
+    /**
+     * Record a failed statement and feed the circuit breaker
+     */
+    private void recordError(String statement) {
+        queryErrors.labels(statement).inc();
+        if (breaker != null && breaker.recordFailure()) {
+            plugin.getLogger().warning("Database circuit breaker opened: serving lookups from memory and "
+                    + "spooling writes until the database recovers");
         }
     }
 
+    /**
+     * Record a successful statement
+     */
+    private void recordSuccess() {
+        if (breaker != null) {
+            breaker.recordSuccess();
+        }
+    }
+
+    /**
+     * Check whether a call should go to the database right now
+     */
+    private boolean allowRequest() {
+        return isAvailable() && breaker.allowRequest();
+    }
+
+    /**
+     * Prepare a statement with the configured query timeout
+     */
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        stmt.setQueryTimeout(queryTimeout);
+        return stmt;
+    }
+
     /**
      * Get a connection from the pool
      */
     public Connection getConnection() throws SQLException {
         if (dataSource == null || dataSource.isClosed()) {
-            throw new SQLException("Database connection pool is not available");
+            throw new SQLTransientConnectionException("Database connection pool is not available");
         }
         return dataSource.getConnection();
     }
@@ -104,6 +426,20 @@ public class DatabaseManager {
         return dataSource != null && !dataSource.isClosed();
     }
 
+    /**
+     * Get the ID this server writes into the change log
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Check if the database is currently degraded (circuit breaker open)
+     */
+    public boolean isDegraded() {
+        return breaker != null && breaker.isOpen();
+    }
+
     /**
      * Close the connection pool
      */
@@ -115,181 +451,1091 @@ public class DatabaseManager {
     }
 
     /**
-     * Add or update a punishment
+     * Add or update a punishment if its row is still at the version the caller last saw
+     *
+     * @param expectedVersion The row version the caller last saw, or 0 if it saw no row
+     * @return Written, spooled for later replay, a conflict carrying the row as stored now, or failed if the
+     *         database rejected the write outright (it is set aside in the dead-letter file)
      */
-    public void savePunishment(String discordId, PunishmentTracker.PunishmentInfo info) {
-        if (!isAvailable()) {
-            plugin.getLogger().warning("Cannot save punishment: Database connection is not available");
-            return;
+    public WriteResult savePunishment(String discordId, PunishmentTracker.PunishmentInfo info, long expectedVersion) {
+        if (spoolIfDegraded(discordId, info, false)) {
+            lastKnown.put(discordId, info);
+            return WriteResult.spooled();
         }
 
-        String sql = "INSERT INTO litebansdiscordlink_punishments " +
-                "(discord_id, minecraft_uuid, minecraft_name, type, reason, expiry_time, issued_time) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE " +
-                "minecraft_uuid = VALUES(minecraft_uuid), " +
-                "minecraft_name = VALUES(minecraft_name), " +
-                "type = VALUES(type), " +
-                "reason = VALUES(reason), " +
-                "expiry_time = VALUES(expiry_time), " +
-                "issued_time = VALUES(issued_time)";
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            long[] version = new long[1];
+            try {
+                inTransaction(conn, () -> version[0] = executeSave(conn, discordId, info, expectedVersion));
+            } catch (VersionConflict e) {
+                return conflict(conn, "save", discordId);
+            }
+            recordSuccess();
+            lastKnown.put(discordId, info.withVersion(version[0]));
+            return WriteResult.written(version[0]);
+        } catch (SQLException e) {
+            if (!isUnavailable(e)) {
+                queryErrors.labels("save_punishment").inc();
+                deadLetter(discordId, info, false, e);
+                lastKnown.put(discordId, info);
+                return WriteResult.failed();
+            }
+            recordError("save_punishment");
+            plugin.getLogger().severe("Failed to save punishment: " + e.getMessage());
+            if (plugin.isDebug()) {
+                e.printStackTrace();
+            }
+            lastKnown.put(discordId, info);
+            spoolWrite(discordId, info, false);
+        } finally {
+            recordQuery("save_punishment", start);
+        }
+        return WriteResult.spooled();
+    }
 
-        try (Connection conn = getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Insert or update the row, compared against the expected version
+     *
+     * @return The row's new version
+     * @throws VersionConflict If the row is not at the expected version
+     */
+    private long executeSave(Connection conn, String discordId, PunishmentTracker.PunishmentInfo info,
+            long expectedVersion) throws SQLException {
+        if (expectedVersion <= 0) {
+            String sql = "INSERT INTO litebansdiscordlink_punishments (" + PUNISHMENT_COLUMNS + ") " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, 1)";
+
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                bindPunishment(stmt, discordId, info);
+                stmt.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Another writer stored a punishment for this user first
+                throw new VersionConflict();
+            }
+        } else {
+            String sql = "UPDATE litebansdiscordlink_punishments SET " +
+                    "minecraft_uuid = ?, minecraft_name = ?, type = ?, reason = ?, expiry_time = ?, issued_time = ?, " +
+                    "version = version + 1 " +
+                    "WHERE discord_id = ? AND version = ?";
+
+            // A different punishment replacing the current one moves the old one to history;
+            // re-saving the same punishment (retries, spool replay) does not
+            archiveRows(conn, HistoryEntry.REPLACED, "discord_id = ? AND version = ? AND issued_time != ?",
+                    List.of(discordId, expectedVersion, info.getIssuedTime()));
+
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                stmt.setString(1, info.getMinecraftUuid().toString());
+                stmt.setString(2, info.getMinecraftName());
+                stmt.setString(3, info.getType());
+                stmt.setString(4, info.getReason());
+                stmt.setLong(5, info.getExpiryTime());
+                stmt.setLong(6, info.getIssuedTime());
+                stmt.setString(7, discordId);
+                stmt.setLong(8, expectedVersion);
+
+                if (stmt.executeUpdate() == 0) {
+                    throw new VersionConflict();
+                }
+            }
+        }
+
+        enqueueOutbox(conn, OutboxEntry.ENFORCE, "discord_id = ?", List.of(discordId));
+        logChange(conn, discordId, ChangeLogEntry.UPSERT);
+        return expectedVersion <= 0 ? 1 : expectedVersion + 1;
+    }
+
+    private void bindPunishment(PreparedStatement stmt, String discordId, PunishmentTracker.PunishmentInfo info)
+            throws SQLException {
+        stmt.setString(1, discordId);
+        stmt.setString(2, info.getMinecraftUuid().toString());
+        stmt.setString(3, info.getMinecraftName());
+        stmt.setString(4, info.getType());
+        stmt.setString(5, info.getReason());
+        stmt.setLong(6, info.getExpiryTime());
+        stmt.setLong(7, info.getIssuedTime());
+    }
 
+    /**
+     * Remove a punishment if its row is still at the version the caller last saw
+     *
+     * @param info The punishment being removed, as the caller last saw it
+     * @return Written, spooled for later replay, a conflict carrying the row as stored now, or failed if the
+     *         database rejected the write outright (it is set aside in the dead-letter file)
+     */
+    public WriteResult removePunishment(String discordId, PunishmentTracker.PunishmentInfo info) {
+        if (spoolIfDegraded(discordId, info, true)) {
+            lastKnown.remove(discordId);
+            return WriteResult.spooled();
+        }
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            try {
+                inTransaction(conn, () -> executeRemove(conn, discordId, info.getVersion()));
+            } catch (VersionConflict e) {
+                return conflict(conn, "remove", discordId);
+            }
+            recordSuccess();
+            lastKnown.remove(discordId);
+            return WriteResult.written(0);
+        } catch (SQLException e) {
+            if (!isUnavailable(e)) {
+                queryErrors.labels("remove_punishment").inc();
+                deadLetter(discordId, info, true, e);
+                lastKnown.remove(discordId);
+                return WriteResult.failed();
+            }
+            recordError("remove_punishment");
+            plugin.getLogger().severe("Failed to remove punishment: " + e.getMessage());
+            e.printStackTrace();
+            lastKnown.remove(discordId);
+            spoolWrite(discordId, info, true);
+        } finally {
+            recordQuery("remove_punishment", start);
+        }
+        return WriteResult.spooled();
+    }
+
+    /**
+     * Delete the row, compared against the expected version
+     *
+     * @throws VersionConflict If the row is gone or not at the expected version
+     */
+    private void executeRemove(Connection conn, String discordId, long expectedVersion) throws SQLException {
+        String sql = "DELETE FROM litebansdiscordlink_punishments WHERE discord_id = ? AND version = ?";
+
+        archiveRows(conn, HistoryEntry.REMOVED, "discord_id = ? AND version = ?", List.of(discordId, expectedVersion));
+        enqueueOutbox(conn, OutboxEntry.LIFT, "discord_id = ? AND version = ?", List.of(discordId, expectedVersion));
+
+        try (PreparedStatement stmt = prepare(conn, sql)) {
+            stmt.setString(1, discordId);
+            stmt.setLong(2, expectedVersion);
+            if (stmt.executeUpdate() == 0) {
+                throw new VersionConflict();
+            }
+        }
+
+        logChange(conn, discordId, ChangeLogEntry.DELETE);
+    }
+
+    /**
+     * Report a rejected write along with the row as it is stored now
+     */
+    private WriteResult conflict(Connection conn, String operation, String discordId) throws SQLException {
+        writeConflicts.labels(operation).inc();
+        PunishmentTracker.PunishmentInfo current = readCurrent(conn, discordId, false);
+        recordSuccess();
+        if (current != null) {
+            lastKnown.put(discordId, current);
+        } else {
+            lastKnown.remove(discordId);
+        }
+        if (plugin.isDebug()) {
+            plugin.getLogger().info("Punishment " + operation + " for " + discordId
+                    + " conflicted with another writer, now at version "
+                    + (current != null ? current.getVersion() : 0));
+        }
+        return WriteResult.conflict(current);
+    }
+
+    /**
+     * Read a user's stored punishment on the caller's connection
+     *
+     * @param lock Whether to lock the row for the rest of the caller's transaction
+     */
+    private PunishmentTracker.PunishmentInfo readCurrent(Connection conn, String discordId, boolean lock)
+            throws SQLException {
+        String sql = "SELECT " + PUNISHMENT_COLUMNS + " FROM litebansdiscordlink_punishments WHERE discord_id = ?" +
+                (lock ? " FOR UPDATE" : "");
+
+        try (PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setString(1, discordId);
-            stmt.setString(2, info.getMinecraftUuid().toString());
-            stmt.setString(3, info.getMinecraftName());
-            stmt.setString(4, info.getType());
-            stmt.setString(5, info.getReason());
-            stmt.setLong(6, info.getExpiryTime());
-            stmt.setLong(7, info.getIssuedTime());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readPunishment(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Thrown inside a write transaction when the row is not at the expected version, rolling it back
+     */
+    private static final class VersionConflict extends SQLException {
+        VersionConflict() {
+            super("Row changed by another writer");
+        }
+    }
 
+    /**
+     * Copy punishment rows into the history archive on the caller's transaction, before they are deleted
+     *
+     * @param condition WHERE clause selecting the rows
+     * @param params    Values bound to the clause's placeholders
+     */
+    private void archiveRows(Connection conn, String endReason, String condition, List<?> params)
+            throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = prepare(conn, HISTORY_INSERT + condition)) {
+            stmt.setString(1, endReason);
+            stmt.setLong(2, now);
+            stmt.setInt(3, monthKey(YearMonth.from(Instant.ofEpochMilli(now).atOffset(ZoneOffset.UTC))));
+            int index = 4;
+            for (Object param : params) {
+                stmt.setObject(index++, param);
+            }
             stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Record a Discord action for punishment rows on the caller's transaction, while the rows still exist
+     *
+     * @param condition WHERE clause selecting the rows
+     * @param params    Values bound to the clause's placeholders
+     */
+    private void enqueueOutbox(Connection conn, String action, String condition, List<?> params)
+            throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = prepare(conn, OUTBOX_INSERT + condition)) {
+            stmt.setString(1, action);
+            stmt.setLong(2, now);
+            stmt.setLong(3, now);
+            int index = 4;
+            for (Object param : params) {
+                stmt.setObject(index++, param);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Claim due outbox actions. Claimed rows are leased: they are not handed out again until the
+     * lease runs out, so a server that dies mid-action leaves them for another to pick up.
+     * Rows locked by another server's claim are skipped rather than waited on where the database
+     * supports it; otherwise the claim waits for the other transaction, which only holds its locks
+     * while it leases the rows.
+     *
+     * @return The claimed actions (attempt count already incremented), empty if none or the database is unavailable
+     */
+    public List<OutboxEntry> claimOutbox(int limit, long leaseMillis) {
+        List<OutboxEntry> claimed = new ArrayList<>();
+        if (!allowRequest()) {
+            return claimed;
+        }
+
+        String select = "SELECT id, discord_id, action, punishment_type, minecraft_name, attempts, done_guilds " +
+                "FROM litebansdiscordlink_outbox WHERE next_attempt_at <= ? " +
+                "ORDER BY next_attempt_at LIMIT ? FOR UPDATE" + (skipLocked ? " SKIP LOCKED" : "");
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            inTransaction(conn, () -> {
+                long now = System.currentTimeMillis();
+                try (PreparedStatement stmt = prepare(conn, select)) {
+                    stmt.setLong(1, now);
+                    stmt.setInt(2, limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            claimed.add(new OutboxEntry(rs.getLong("id"), rs.getString("discord_id"),
+                                    rs.getString("action"), rs.getString("punishment_type"),
+                                    rs.getString("minecraft_name"), rs.getInt("attempts") + 1,
+                                    splitGuilds(rs.getString("done_guilds"))));
+                        }
+                    }
+                }
+                if (claimed.isEmpty()) {
+                    return;
+                }
+
+                String placeholders = String.join(",", Collections.nCopies(claimed.size(), "?"));
+                try (PreparedStatement stmt = prepare(conn, "UPDATE litebansdiscordlink_outbox " +
+                        "SET attempts = attempts + 1, next_attempt_at = ? WHERE id IN (" + placeholders + ")")) {
+                    stmt.setLong(1, now + leaseMillis);
+                    int index = 2;
+                    for (OutboxEntry entry : claimed) {
+                        stmt.setLong(index++, entry.getId());
+                    }
+                    stmt.executeUpdate();
+                }
+            });
+            recordSuccess();
 
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save punishment: " + e.getMessage());
-            if (plugin.isDebug()) {
-                e.printStackTrace();
+            claimed.clear();
+            recordError("claim_outbox");
+            plugin.getLogger().warning("Failed to claim outbox actions: " + e.getMessage());
+        } finally {
+            recordQuery("claim_outbox", start);
+        }
+
+        return claimed;
+    }
+
+    /**
+     * Remove finished (or abandoned) outbox actions
+     */
+    public void completeOutbox(Collection<Long> ids) {
+        if (ids.isEmpty() || !allowRequest()) {
+            return;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        String sql = "DELETE FROM litebansdiscordlink_outbox WHERE id IN (" + placeholders + ")";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql)) {
+            int index = 1;
+            for (long id : ids) {
+                stmt.setLong(index++, id);
             }
+            stmt.executeUpdate();
+            recordSuccess();
+
+        } catch (SQLException e) {
+            // The lease runs out and the actions are retried; they are safe to repeat
+            recordError("complete_outbox");
+            plugin.getLogger().warning("Failed to mark outbox actions done: " + e.getMessage());
+        } finally {
+            recordQuery("complete_outbox", start);
         }
     }
 
     /**
-     * Remove a punishment
+     * Schedule failed outbox actions for another attempt
+     *
+     * @param retries    Outbox ID to the time of the next attempt
+     * @param errors     Outbox ID to the error of the failed attempt
+     * @param doneGuilds Outbox ID to the guilds where the action is done, which the next attempt skips
      */
-    public void removePunishment(String discordId) {
-        String sql = "DELETE FROM litebansdiscordlink_punishments WHERE discord_id = ?";
+    public void retryOutbox(Map<Long, Long> retries, Map<Long, String> errors, Map<Long, Set<String>> doneGuilds) {
+        if (retries.isEmpty() || !allowRequest()) {
+            return;
+        }
+
+        String sql = "UPDATE litebansdiscordlink_outbox SET next_attempt_at = ?, last_error = ?, done_guilds = ? " +
+                "WHERE id = ?";
 
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = prepare(conn, sql)) {
+            for (Map.Entry<Long, Long> retry : retries.entrySet()) {
+                String error = errors.get(retry.getKey());
+                stmt.setLong(1, retry.getValue());
+                stmt.setString(2, error != null && error.length() > 255 ? error.substring(0, 255) : error);
+                stmt.setString(3, joinGuilds(doneGuilds.getOrDefault(retry.getKey(), Set.of())));
+                stmt.setLong(4, retry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            recordSuccess();
+
+        } catch (SQLException e) {
+            recordError("retry_outbox");
+            plugin.getLogger().warning("Failed to reschedule outbox actions: " + e.getMessage());
+        } finally {
+            recordQuery("retry_outbox", start);
+        }
+    }
+
+    private static Set<String> splitGuilds(String guilds) {
+        Set<String> names = new TreeSet<>();
+        if (guilds != null) {
+            for (String name : guilds.split("\n")) {
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static String joinGuilds(Set<String> guilds) {
+        String joined = String.join("\n", guilds);
+        // Too many to record: the guilds left out are redone, which is harmless
+        return joined.length() > 1024 ? joined.substring(0, joined.lastIndexOf('\n', 1024) + 1) : joined;
+    }
+
+    /**
+     * Append a change log row on the caller's connection (and transaction)
+     */
+    private void logChange(Connection conn, String discordId, String operation) throws SQLException {
+        String sql = "INSERT INTO litebansdiscordlink_changelog (discord_id, operation, node_id, changed_at) " +
+                "VALUES (?, ?, ?, ?)";
 
+        try (PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setString(1, discordId);
+            stmt.setString(2, operation);
+            stmt.setString(3, nodeId);
+            stmt.setLong(4, System.currentTimeMillis());
             stmt.executeUpdate();
+        }
+    }
 
+    /**
+     * Run statements in a single transaction, rolling back on failure
+     */
+    private void inTransaction(Connection conn, SqlWork work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            work.run();
+            conn.commit();
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to remove punishment: " + e.getMessage());
-            e.printStackTrace();
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
         }
     }
 
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
     /**
      * Get a punishment by Discord ID
      */
     public PunishmentTracker.PunishmentInfo getPunishment(String discordId) {
-        String sql = "SELECT * FROM litebansdiscordlink_punishments WHERE discord_id = ?";
+        // Serve from memory while degraded or while this ID has writes waiting in the spool
+        if (pendingIds.contains(discordId) || !allowRequest()) {
+            degradedReads.inc();
+            return lastKnown.get(discordId);
+        }
+
+        String sql = "SELECT " + PUNISHMENT_COLUMNS + " FROM litebansdiscordlink_punishments WHERE discord_id = ?";
 
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = prepare(conn, sql)) {
 
             stmt.setString(1, discordId);
 
+            PunishmentTracker.PunishmentInfo info = null;
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return new PunishmentTracker.PunishmentInfo(
-                            UUID.fromString(rs.getString("minecraft_uuid")),
-                            rs.getString("minecraft_name"),
-                            rs.getString("type"),
-                            rs.getString("reason"),
-                            rs.getLong("expiry_time"));
+                    info = readPunishment(rs);
                 }
             }
+            recordSuccess();
+
+            if (info != null) {
+                lastKnown.put(discordId, info);
+            } else {
+                lastKnown.remove(discordId);
+            }
+            return info;
 
         } catch (SQLException e) {
+            recordError("get_punishment");
             plugin.getLogger().severe("Failed to get punishment: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            recordQuery("get_punishment", start);
         }
 
-        return null;
+        degradedReads.inc();
+        return lastKnown.get(discordId);
     }
 
     /**
      * Get all active punishments
+     *
+     * @return The punishments, or null if the database could not be read
      */
     public Map<String, PunishmentTracker.PunishmentInfo> getAllPunishments() {
         Map<String, PunishmentTracker.PunishmentInfo> punishments = new HashMap<>();
-        String sql = "SELECT * FROM litebansdiscordlink_punishments";
+        if (!forEachPunishment(punishments::put)) {
+            return null; // A partial view would drop enforcement for everyone missing from it
+        }
+        return punishments;
+    }
+
+    /**
+     * Stream every stored punishment to a callback without holding the table in memory.
+     * Connector/J hands rows over one at a time as the server sends them, so the connection
+     * stays busy until the last row: keep the callback short and do not query from it.
+     *
+     * @return false if the database could not be read (the callback may have seen some rows)
+     */
+    public boolean forEachPunishment(BiConsumer<String, PunishmentTracker.PunishmentInfo> visitor) {
+        if (!allowRequest()) {
+            return false;
+        }
 
+        String sql = "SELECT " + PUNISHMENT_COLUMNS + " FROM litebansdiscordlink_punishments";
+
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setQueryTimeout(queryTimeout);
+            stmt.setFetchSize(Integer.MIN_VALUE); // Row-by-row streaming instead of buffering the result
 
-            while (rs.next()) {
-                String discordId = rs.getString("discord_id");
-                PunishmentTracker.PunishmentInfo info = new PunishmentTracker.PunishmentInfo(
-                        UUID.fromString(rs.getString("minecraft_uuid")),
-                        rs.getString("minecraft_name"),
-                        rs.getString("type"),
-                        rs.getString("reason"),
-                        rs.getLong("expiry_time"));
-                punishments.put(discordId, info);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.accept(rs.getString("discord_id"), readPunishment(rs));
+                }
             }
+            recordSuccess();
+            return true;
 
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to get all punishments: " + e.getMessage());
-            e.printStackTrace();
+            recordError("stream_punishments");
+            plugin.getLogger().severe("Failed to read punishments: " + e.getMessage());
+            if (plugin.isDebug()) {
+                e.printStackTrace();
+            }
+            return false;
+        } finally {
+            recordQuery("stream_punishments", start);
         }
+    }
 
-        return punishments;
+    /**
+     * Claim a batch of expired punishments. The rows are read and deleted in one transaction,
+     * so each expiry is handled by exactly one server.
+     *
+     * @param limit Maximum number of rows to claim
+     * @return Map of Discord ID to the claimed punishment, oldest expiry first
+     */
+    public Map<String, PunishmentTracker.PunishmentInfo> claimExpired(int limit) {
+        Map<String, PunishmentTracker.PunishmentInfo> claimed = new LinkedHashMap<>();
+        if (!allowRequest()) {
+            return claimed;
+        }
+
+        String select = "SELECT " + PUNISHMENT_COLUMNS + " FROM litebansdiscordlink_punishments " +
+                "WHERE expiry_time != -1 AND expiry_time < ? " +
+                "ORDER BY expiry_time LIMIT ? FOR UPDATE";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            inTransaction(conn, () -> {
+                try (PreparedStatement stmt = prepare(conn, select)) {
+                    stmt.setLong(1, System.currentTimeMillis());
+                    stmt.setInt(2, limit);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            claimed.put(rs.getString("discord_id"), readPunishment(rs));
+                        }
+                    }
+                }
+                if (claimed.isEmpty()) {
+                    return;
+                }
+
+                String placeholders = String.join(",", Collections.nCopies(claimed.size(), "?"));
+                archiveRows(conn, HistoryEntry.EXPIRED, "discord_id IN (" + placeholders + ")",
+                        new ArrayList<>(claimed.keySet()));
+                enqueueOutbox(conn, OutboxEntry.EXPIRE, "discord_id IN (" + placeholders + ")",
+                        new ArrayList<>(claimed.keySet()));
+
+                try (PreparedStatement stmt = prepare(conn,
+                        "DELETE FROM litebansdiscordlink_punishments WHERE discord_id IN (" + placeholders + ")")) {
+                    int index = 1;
+                    for (String discordId : claimed.keySet()) {
+                        stmt.setString(index++, discordId);
+                    }
+                    stmt.executeUpdate();
+                }
+
+                String changeSql = "INSERT INTO litebansdiscordlink_changelog (discord_id, operation, node_id, changed_at) " +
+                        "VALUES (?, ?, ?, ?)";
+                try (PreparedStatement stmt = prepare(conn, changeSql)) {
+                    long now = System.currentTimeMillis();
+                    for (String discordId : claimed.keySet()) {
+                        stmt.setString(1, discordId);
+                        stmt.setString(2, ChangeLogEntry.DELETE);
+                        stmt.setString(3, nodeId);
+                        stmt.setLong(4, now);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            });
+            recordSuccess();
+
+            for (String discordId : claimed.keySet()) {
+                lastKnown.computeIfPresent(discordId, (id, info) -> info.isExpired() ? null : info);
+            }
+
+        } catch (SQLException e) {
+            claimed.clear();
+            recordError("claim_expired");
+            plugin.getLogger().severe("Failed to claim expired punishments: " + e.getMessage());
+            if (plugin.isDebug()) {
+                e.printStackTrace();
+            }
+        } finally {
+            recordQuery("claim_expired", start);
+        }
+
+        return claimed;
+    }
+
+    /**
+     * Get one page of a user's punishment history, newest first.
+     * Pages are keyed on the archive row ID, so each page is an index range read no matter how
+     * far back it is; the first page also includes the active punishment, if any.
+     *
+     * @param byDiscordId True to look up by Discord ID, false by Minecraft UUID
+     * @param beforeId    Return archived rows with a lower ID than this, or 0 for the first page
+     */
+    public List<HistoryEntry> getHistory(boolean byDiscordId, String key, long beforeId, int limit)
+            throws SQLException {
+        if (!allowRequest()) {
+            throw new SQLException("Database is unavailable");
+        }
+
+        String column = byDiscordId ? "discord_id" : "minecraft_uuid";
+        List<HistoryEntry> entries = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            if (beforeId <= 0) {
+                try (PreparedStatement stmt = prepare(conn,
+                        "SELECT " + PUNISHMENT_COLUMNS + " FROM litebansdiscordlink_punishments WHERE " + column + " = ?")) {
+                    stmt.setString(1, key);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            entries.add(new HistoryEntry(0, rs.getString("discord_id"), readPunishment(rs), null, 0));
+                        }
+                    }
+                }
+            }
+
+            // The inner query only touches the (column, id) index; full rows are then fetched by primary key
+            String sql = "SELECT h.* FROM (" +
+                    "SELECT id, ended_month FROM " + HISTORY_TABLE + " WHERE " + column + " = ? AND id < ? " +
+                    "ORDER BY id DESC LIMIT ?) page " +
+                    "JOIN " + HISTORY_TABLE + " h ON h.id = page.id AND h.ended_month = page.ended_month " +
+                    "ORDER BY h.id DESC";
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                stmt.setString(1, key);
+                stmt.setLong(2, beforeId <= 0 ? Long.MAX_VALUE : beforeId);
+                stmt.setInt(3, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        entries.add(new HistoryEntry(rs.getLong("id"), rs.getString("discord_id"), readArchived(rs),
+                                rs.getString("end_reason"), rs.getLong("ended_at")));
+                    }
+                }
+            }
+            recordSuccess();
+
+        } catch (SQLException e) {
+            recordError("get_history");
+            throw e;
+        } finally {
+            recordQuery("get_history", start);
+        }
+
+        return entries;
     }
 
     /**
-     * Get all expired punishments (for cleanup with Discord role removal)
+     * Get punishments for a set of Discord IDs in one query
+     *
+     * @return Map of Discord ID to punishment info, or null if the database could not be queried
      */
-    public Map<String, PunishmentTracker.PunishmentInfo> getExpiredPunishments() {
-        Map<String, PunishmentTracker.PunishmentInfo> expired = new HashMap<>();
-        String sql = "SELECT * FROM litebansdiscordlink_punishments WHERE expiry_time != -1 AND expiry_time < ?";
+    public Map<String, PunishmentTracker.PunishmentInfo> getPunishments(Collection<String> discordIds) {
+        Map<String, PunishmentTracker.PunishmentInfo> punishments = new HashMap<>();
+        if (discordIds.isEmpty()) {
+            return punishments;
+        }
+        if (!allowRequest()) {
+            return null;
+        }
 
+        String placeholders = String.join(",", Collections.nCopies(discordIds.size(), "?"));
+        String sql = "SELECT " + PUNISHMENT_COLUMNS + " FROM litebansdiscordlink_punishments " +
+                "WHERE discord_id IN (" + placeholders + ")";
+
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = prepare(conn, sql)) {
 
-            stmt.setLong(1, System.currentTimeMillis());
+            int index = 1;
+            for (String discordId : discordIds) {
+                stmt.setString(index++, discordId);
+            }
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String discordId = rs.getString("discord_id");
-                    PunishmentTracker.PunishmentInfo info = new PunishmentTracker.PunishmentInfo(
-                            UUID.fromString(rs.getString("minecraft_uuid")),
-                            rs.getString("minecraft_name"),
-                            rs.getString("type"),
-                            rs.getString("reason"),
-                            rs.getLong("expiry_time"));
-                    expired.put(discordId, info);
+                    punishments.put(rs.getString("discord_id"), readPunishment(rs));
                 }
             }
+            recordSuccess();
 
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to get expired punishments: " + e.getMessage());
+            recordError("get_punishments");
+            plugin.getLogger().severe("Failed to get punishments: " + e.getMessage());
             if (plugin.isDebug()) {
                 e.printStackTrace();
             }
+            return null;
+        } finally {
+            recordQuery("get_punishments", start);
+        }
+
+        return punishments;
+    }
+
+    /**
+     * Get the highest change log sequence number (0 if empty)
+     */
+    public long getChangeLogHead() throws SQLException {
+        return queryLong("changelog_head", "SELECT COALESCE(MAX(seq), 0) FROM litebansdiscordlink_changelog");
+    }
+
+    /**
+     * Get the lowest change log sequence number still retained (0 if empty)
+     */
+    public long getChangeLogTail() throws SQLException {
+        return queryLong("changelog_tail", "SELECT COALESCE(MIN(seq), 0) FROM litebansdiscordlink_changelog");
+    }
+
+    private long queryLong(String statement, String sql) throws SQLException {
+        if (!allowRequest()) {
+            throw new SQLException("Database is degraded");
+        }
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql);
+                ResultSet rs = stmt.executeQuery()) {
+            long value = rs.next() ? rs.getLong(1) : 0;
+            recordSuccess();
+            return value;
+        } catch (SQLException e) {
+            recordError(statement);
+            throw e;
+        } finally {
+            recordQuery(statement, start);
+        }
+    }
+
+    /**
+     * Get change log rows after a sequence watermark, in order
+     */
+    public List<ChangeLogEntry> getChangesSince(long seq, int limit) throws SQLException {
+        if (!allowRequest()) {
+            throw new SQLException("Database is degraded");
+        }
+
+        String sql = "SELECT seq, discord_id, operation, node_id FROM litebansdiscordlink_changelog " +
+                "WHERE seq > ? ORDER BY seq LIMIT ?";
+
+        List<ChangeLogEntry> changes = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql)) {
+
+            stmt.setLong(1, seq);
+            stmt.setInt(2, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new ChangeLogEntry(rs.getLong("seq"), rs.getString("discord_id"),
+                            rs.getString("operation"), rs.getString("node_id")));
+                }
+            }
+            recordSuccess();
+
+        } catch (SQLException e) {
+            recordError("changelog_poll");
+            throw e;
+        } finally {
+            recordQuery("changelog_poll", start);
         }
 
-        return expired;
+        return changes;
     }
 
     /**
-     * Remove all expired punishments
+     * Delete change log rows older than the given timestamp
      */
-    public int cleanExpired() {
-        String sql = "DELETE FROM litebansdiscordlink_punishments WHERE expiry_time != -1 AND expiry_time < ?";
+    public int pruneChangeLog(long olderThan) {
+        if (!allowRequest()) {
+            return 0;
+        }
 
+        String sql = "DELETE FROM litebansdiscordlink_changelog WHERE changed_at < ?";
+
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+                PreparedStatement stmt = prepare(conn, sql)) {
 
-            stmt.setLong(1, System.currentTimeMillis());
-            return stmt.executeUpdate();
+            stmt.setLong(1, olderThan);
+            int removed = stmt.executeUpdate();
+            recordSuccess();
+            return removed;
 
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to clean expired punishments: " + e.getMessage());
-            if (plugin.isDebug()) {
-                e.printStackTrace();
+            recordError("changelog_prune");
+            plugin.getLogger().warning("Failed to prune change log: " + e.getMessage());
+        } finally {
+            recordQuery("changelog_prune", start);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Claim a LiteBans event for this server. The marker insert is atomic, so when several
+     * servers receive the same event only the first one to claim it handles it. The marker stays
+     * a claim until {@link #completeEntry} records the event as handled; a claim that is never
+     * completed (the server stopped partway) can be taken over once it is older than
+     * {@code claimTimeout}.
+     */
+    public Claim claimEntry(String entryKey, long claimTimeout) {
+        if (!allowRequest()) {
+            return Claim.UNAVAILABLE;
+        }
+
+        String insert = "INSERT IGNORE INTO litebansdiscordlink_processed (entry_key, node_id, processed_at, done) " +
+                "VALUES (?, ?, ?, 0)";
+        String takeOver = "UPDATE litebansdiscordlink_processed SET node_id = ?, processed_at = ? " +
+                "WHERE entry_key = ? AND done = 0 AND processed_at < ?";
+
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        try (Connection conn = getConnection()) {
+            boolean claimed;
+            try (PreparedStatement stmt = prepare(conn, insert)) {
+                stmt.setString(1, entryKey);
+                stmt.setString(2, nodeId);
+                stmt.setLong(3, now);
+                claimed = stmt.executeUpdate() > 0;
+            }
+            if (!claimed) {
+                try (PreparedStatement stmt = prepare(conn, takeOver)) {
+                    stmt.setString(1, nodeId);
+                    stmt.setLong(2, now);
+                    stmt.setString(3, entryKey);
+                    stmt.setLong(4, now - claimTimeout);
+                    claimed = stmt.executeUpdate() > 0;
+                }
             }
+            recordSuccess();
+            return claimed ? Claim.CLAIMED : Claim.TAKEN;
+
+        } catch (SQLException e) {
+            recordError("claim_entry");
+            plugin.getLogger().warning("Failed to claim LiteBans entry " + entryKey + ": " + e.getMessage());
+            return Claim.UNAVAILABLE;
+        } finally {
+            recordQuery("claim_entry", start);
+        }
+    }
+
+    /**
+     * Record a claimed LiteBans event as handled, so no server handles it again
+     */
+    public void completeEntry(String entryKey) {
+        updateEntry("complete_entry", entryKey,
+                "UPDATE litebansdiscordlink_processed SET done = 1 WHERE entry_key = ? AND node_id = ?");
+    }
+
+    /**
+     * Give up this server's claim on a LiteBans event it failed to handle, so it can be handled again
+     */
+    public void releaseEntry(String entryKey) {
+        updateEntry("release_entry", entryKey,
+                "DELETE FROM litebansdiscordlink_processed WHERE entry_key = ? AND node_id = ? AND done = 0");
+    }
+
+    private void updateEntry(String statement, String entryKey, String sql) {
+        if (!allowRequest()) {
+            return; // An unfinished claim times out and can be taken over
+        }
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql)) {
+
+            stmt.setString(1, entryKey);
+            stmt.setString(2, nodeId);
+            stmt.executeUpdate();
+            recordSuccess();
+
+        } catch (SQLException e) {
+            recordError(statement);
+            plugin.getLogger().warning("Failed to update LiteBans entry " + entryKey + ": " + e.getMessage());
+        } finally {
+            recordQuery(statement, start);
+        }
+    }
+
+    /**
+     * Remove processed-event markers older than the given time
+     *
+     * @return The number of markers removed
+     */
+    public int pruneEntryMarkers(long olderThan) {
+        if (!allowRequest()) {
+            return 0;
+        }
+
+        String sql = "DELETE FROM litebansdiscordlink_processed WHERE processed_at < ?";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql)) {
+
+            stmt.setLong(1, olderThan);
+            int removed = stmt.executeUpdate();
+            recordSuccess();
+            return removed;
+
+        } catch (SQLException e) {
+            recordError("prune_entry_markers");
+            plugin.getLogger().warning("Failed to prune processed entry markers: " + e.getMessage());
+        } finally {
+            recordQuery("prune_entry_markers", start);
         }
 
         return 0;
     }
 
+    /**
+     * Keep the history archive's monthly partitions in shape: create partitions for the coming
+     * months and drop whole partitions that are past the retention period
+     *
+     * @param retentionMonths Months of history to keep, or 0 to keep everything
+     */
+    public void maintainHistoryPartitions(int retentionMonths) {
+        if (!allowRequest()) {
+            return;
+        }
+
+        String sql = "SELECT partition_name, partition_description FROM information_schema.partitions " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND partition_name IS NOT NULL";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            // Month key -> partition name, for the monthly partitions (not p_future)
+            TreeMap<Integer, String> partitions = new TreeMap<>();
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                stmt.setString(1, HISTORY_TABLE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String bound = rs.getString("partition_description");
+                        if (!"MAXVALUE".equalsIgnoreCase(bound)) {
+                            partitions.put(Integer.parseInt(bound.trim()), rs.getString("partition_name"));
+                        }
+                    }
+                }
+            }
+
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            try (Statement stmt = conn.createStatement()) {
+                // Partition "pYYYYMM" holds rows ended before the following month; split new ones off p_future
+                for (int i = 0; i <= HISTORY_MONTHS_AHEAD; i++) {
+                    YearMonth month = current.plusMonths(i);
+                    int bound = monthKey(month.plusMonths(1));
+                    if (!partitions.isEmpty() && partitions.lastKey() >= bound) {
+                        continue;
+                    }
+                    String name = "p" + monthKey(month);
+                    stmt.execute("ALTER TABLE " + HISTORY_TABLE + " REORGANIZE PARTITION p_future INTO (" +
+                            "PARTITION " + name + " VALUES LESS THAN (" + bound + ")," +
+                            "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+                    partitions.put(bound, name);
+                    if (plugin.isDebug()) {
+                        plugin.getLogger().info("Created history partition " + name);
+                    }
+                }
+
+                if (retentionMonths > 0) {
+                    int cutoff = monthKey(current.minusMonths(retentionMonths));
+                    for (Map.Entry<Integer, String> partition : partitions.headMap(cutoff, true).entrySet()) {
+                        stmt.execute("ALTER TABLE " + HISTORY_TABLE + " DROP PARTITION " + partition.getValue());
+                        plugin.getLogger().info("Dropped history partition " + partition.getValue()
+                                + " (older than " + retentionMonths + " months)");
+                    }
+                }
+            }
+            recordSuccess();
+
+        } catch (SQLException | NumberFormatException e) {
+            // Another server may have changed the partitions first; the next run picks up from there
+            recordError("maintain_history");
+            plugin.getLogger().warning("Failed to maintain history partitions: " + e.getMessage());
+        } finally {
+            recordQuery("maintain_history", start);
+        }
+    }
+
+    private static int monthKey(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    /**
+     * Get a stored state value
+     *
+     * @return The value, or null if it has never been set
+     */
+    public String getState(String key) throws SQLException {
+        if (!allowRequest()) {
+            throw new SQLException("Database is degraded");
+        }
+
+        String sql = "SELECT state_value FROM litebansdiscordlink_state WHERE state_key = ?";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql)) {
+
+            stmt.setString(1, key);
+
+            String value = null;
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    value = rs.getString(1);
+                }
+            }
+            recordSuccess();
+            return value;
+
+        } catch (SQLException e) {
+            recordError("get_state");
+            throw e;
+        } finally {
+            recordQuery("get_state", start);
+        }
+    }
+
+    /**
+     * Store a state value
+     */
+    public void setState(String key, String value) throws SQLException {
+        if (!allowRequest()) {
+            throw new SQLException("Database is degraded");
+        }
+
+        String sql = "INSERT INTO litebansdiscordlink_state (state_key, state_value) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE state_value = VALUES(state_value)";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = prepare(conn, sql)) {
+
+            stmt.setString(1, key);
+            stmt.setString(2, value);
+            stmt.executeUpdate();
+            recordSuccess();
+
+        } catch (SQLException e) {
+            recordError("set_state");
+            throw e;
+        } finally {
+            recordQuery("set_state", start);
+        }
+    }
+
     /**
      * Check if a Discord ID has an active punishment
      */
@@ -301,10 +1547,228 @@ public class DatabaseManager {
 
         // Check if expired
         if (info.isExpired()) {
-            removePunishment(discordId);
+            removePunishment(discordId, info);
             return false;
         }
 
         return true;
     }
+
+    /**
+     * Read a punishment row
+     */
+    private PunishmentTracker.PunishmentInfo readPunishment(ResultSet rs) throws SQLException {
+        return readPunishment(rs, rs.getLong("version"));
+    }
+
+    /**
+     * Read a history row (archived rows are not versioned)
+     */
+    private PunishmentTracker.PunishmentInfo readArchived(ResultSet rs) throws SQLException {
+        return readPunishment(rs, 0);
+    }
+
+    private PunishmentTracker.PunishmentInfo readPunishment(ResultSet rs, long version) throws SQLException {
+        return new PunishmentTracker.PunishmentInfo(
+                UUID.fromString(rs.getString("minecraft_uuid")),
+                rs.getString("minecraft_name"),
+                rs.getString("type"),
+                rs.getString("reason"),
+                rs.getLong("expiry_time"),
+                rs.getLong("issued_time"),
+                version);
+    }
+
+    /**
+     * Spool a write instead of executing it if the database is degraded or older writes are still spooled
+     *
+     * @param info    The punishment to save, or the one being removed
+     * @param removal Whether the write is a removal
+     * @return true if the write was spooled
+     */
+    private boolean spoolIfDegraded(String discordId, PunishmentTracker.PunishmentInfo info, boolean removal) {
+        synchronized (spool) {
+            if (!spoolPending && allowRequest()) {
+                return false;
+            }
+            spoolWrite(discordId, info, removal);
+            return true;
+        }
+    }
+
+    /**
+     * Append a write to the local spool so it can be replayed later
+     */
+    private void spoolWrite(String discordId, PunishmentTracker.PunishmentInfo info, boolean removal) {
+        synchronized (spool) {
+            try {
+                if (removal) {
+                    spool.appendRemove(discordId, info.getIssuedTime());
+                } else {
+                    spool.appendSave(discordId, info);
+                }
+                spoolPending = true;
+                pendingIds.add(discordId);
+                spooledWrites.inc();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to spool punishment write for " + discordId + ": " + e.getMessage());
+            }
+        }
+
+        if (!isDegraded()) {
+            scheduleReplay();
+        }
+    }
+
+    /**
+     * Check whether a failed write should be spooled and replayed, because the database could not
+     * be reached or the statement may succeed when tried again. Anything else (a value too long,
+     * a constraint violation) fails the same way on every replay.
+     */
+    private boolean isUnavailable(SQLException e) {
+        if (!isAvailable() || e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        // Connection errors (08) and rolled back transactions such as deadlocks (40)
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+
+    /**
+     * Set aside a write the database rejected outright, so it can be inspected and fixed by hand
+     */
+    private void deadLetter(String discordId, PunishmentTracker.PunishmentInfo info, boolean removal,
+            SQLException e) {
+        plugin.getLogger().severe("Database rejected punishment " + (removal ? "removal" : "save") + " for "
+                + discordId + ", moved to spool/dead-letter.log: " + e.getMessage());
+        deadLetters.inc();
+        try {
+            if (removal) {
+                deadLetter.appendRemove(discordId, info != null ? info.getIssuedTime() : -1);
+            } else {
+                deadLetter.appendSave(discordId, info);
+            }
+        } catch (IOException io) {
+            plugin.getLogger().severe("Failed to write dead-letter entry for " + discordId + ": " + io.getMessage());
+        }
+    }
+
+    /**
+     * Load the IDs of previously spooled writes
+     */
+    private void loadSpool() {
+        synchronized (spool) {
+            try {
+                List<WriteSpool.Entry> entries = spool.read();
+                for (WriteSpool.Entry entry : entries) {
+                    pendingIds.add(entry.getDiscordId());
+                    if (entry.getInfo() != null) {
+                        lastKnown.put(entry.getDiscordId(), entry.getInfo());
+                    } else {
+                        lastKnown.remove(entry.getDiscordId());
+                    }
+                }
+                spoolPending = !entries.isEmpty();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to read punishment write spool: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Apply one spooled write against the stored row, locked for the caller's transaction
+     */
+    private void replayEntry(Connection conn, WriteSpool.Entry entry) throws SQLException {
+        String discordId = entry.getDiscordId();
+        PunishmentTracker.PunishmentInfo current = readCurrent(conn, discordId, true);
+        PunishmentTracker.PunishmentInfo info = entry.getInfo();
+
+        if (info != null) {
+            if (current != null && current.getIssuedTime() > info.getIssuedTime()) {
+                writeConflicts.labels("replay").inc();
+                return;
+            }
+            executeSave(conn, discordId, info, current != null ? current.getVersion() : 0);
+        } else {
+            boolean sameRow = entry.getIssuedTime() < 0 || (current != null
+                    && current.getIssuedTime() == entry.getIssuedTime());
+            if (current == null || !sameRow) {
+                writeConflicts.labels("replay").inc();
+                return;
+            }
+            executeRemove(conn, discordId, current.getVersion());
+        }
+    }
+
+    /**
+     * Replay spooled writes asynchronously
+     */
+    private void scheduleReplay() {
+        if (plugin.isEnabled()) {
+            plugin.getScheduler().runAsync(this::replaySpool);
+        }
+    }
+
+    /**
+     * Replay spooled writes in order, stopping while the database is unavailable.
+     * Spooled writes never saw the rows other servers wrote meanwhile, so each is checked against
+     * the stored row first: a save is dropped if a newer punishment is stored, and a removal if
+     * the punishment it removed has already been removed or replaced. A write the database rejects
+     * outright is moved to the dead-letter file so it does not hold back the ones after it.
+     */
+    public void replaySpool() {
+        if (!replaying.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            while (true) {
+                List<WriteSpool.Entry> entries = spool.read();
+                int replayed = 0;
+
+                if (!entries.isEmpty()) {
+                    long start = System.nanoTime();
+                    try (Connection conn = getConnection()) {
+                        for (WriteSpool.Entry entry : entries) {
+                            try {
+                                inTransaction(conn, () -> replayEntry(conn, entry));
+                            } catch (SQLException e) {
+                                if (e instanceof VersionConflict || isUnavailable(e)) {
+                                    throw e;
+                                }
+                                queryErrors.labels("replay_spool").inc();
+                                deadLetter(entry.getDiscordId(), entry.getInfo(), entry.getInfo() == null, e);
+                            }
+                            replayed++;
+                        }
+                        recordSuccess();
+                    } catch (SQLException e) {
+                        recordError("replay_spool");
+                        plugin.getLogger().warning("Spool replay stopped after " + replayed + " write(s): "
+                                + e.getMessage());
+                    } finally {
+                        recordQuery("replay_spool", start);
+                    }
+
+                    spool.consume(replayed);
+                    if (replayed < entries.size()) {
+                        return;
+                    }
+                    plugin.getLogger().info("Replayed " + replayed + " spooled punishment write(s)");
+                }
+
+                synchronized (spool) {
+                    if (!spool.hasPending()) {
+                        spoolPending = false;
+                        pendingIds.clear();
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to replay punishment write spool: " + e.getMessage());
+        } finally {
+            replaying.set(false);
+        }
+    }
 }
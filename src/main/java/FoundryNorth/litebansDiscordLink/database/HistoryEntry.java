@@ -0,0 +1,57 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+/**
+ * A punishment as shown in a user's history: either still active or ended and kept in the archive
+ */
+public class HistoryEntry {
+
+    /** Lifted in LiteBans or removed by an admin */
+    public static final String REMOVED = "REMOVED";
+    /** Ran out */
+    public static final String EXPIRED = "EXPIRED";
+    /** Superseded by a newer punishment for the same user */
+    public static final String REPLACED = "REPLACED";
+
+    private final long id;
+    private final String discordId;
+    private final PunishmentTracker.PunishmentInfo punishment;
+    private final String endReason;
+    private final long endedAt;
+
+    /**
+     * @param id        Archive row ID (the pagination key), or 0 for an active punishment
+     * @param endReason Why the punishment ended, or null if it is active
+     */
+    public HistoryEntry(long id, String discordId, PunishmentTracker.PunishmentInfo punishment, String endReason,
+            long endedAt) {
+        this.id = id;
+        this.discordId = discordId;
+        this.punishment = punishment;
+        this.endReason = endReason;
+        this.endedAt = endedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDiscordId() {
+        return discordId;
+    }
+
+    public PunishmentTracker.PunishmentInfo getPunishment() {
+        return punishment;
+    }
+
+    public String getEndReason() {
+        return endReason;
+    }
+
+    public long getEndedAt() {
+        return endedAt;
+    }
+
+    public boolean isActive() {
+        return endReason == null;
+    }
+}
@@ -0,0 +1,69 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import java.util.Set;
+
+/**
+ * A pending Discord action recorded in the outbox together with the punishment change that caused it
+ */
+public class OutboxEntry {
+
+    /** Apply the user's current punishment in Discord */
+    public static final String ENFORCE = "ENFORCE";
+    /** Lift enforcement after the punishment was removed */
+    public static final String LIFT = "LIFT";
+    /** Lift enforcement after the punishment expired */
+    public static final String EXPIRE = "EXPIRE";
+
+    private final long id;
+    private final String discordId;
+    private final String action;
+    private final String punishmentType;
+    private final String minecraftName;
+    private final int attempts;
+    private final Set<String> doneGuilds;
+
+    public OutboxEntry(long id, String discordId, String action, String punishmentType, String minecraftName,
+            int attempts, Set<String> doneGuilds) {
+        this.id = id;
+        this.discordId = discordId;
+        this.action = action;
+        this.punishmentType = punishmentType;
+        this.minecraftName = minecraftName;
+        this.attempts = attempts;
+        this.doneGuilds = doneGuilds;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDiscordId() {
+        return discordId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getPunishmentType() {
+        return punishmentType;
+    }
+
+    public String getMinecraftName() {
+        return minecraftName;
+    }
+
+    /**
+     * Number of times the action has been claimed, including the current attempt
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Names of the guilds where an earlier attempt already carried out the action
+     */
+    public Set<String> getDoneGuilds() {
+        return doneGuilds;
+    }
+}
@@ -1,36 +1,252 @@
 package FoundryNorth.litebansDiscordLink.database;
 
+import FoundryNorth.litebansDiscordLink.jfr.StoreWriteEvent;
+import FoundryNorth.litebansDiscordLink.jfr.TrackerLookupEvent;
+import FoundryNorth.litebansDiscordLink.util.RebuildingBloomFilter;
+import FoundryNorth.litebansDiscordLink.util.TinyLfuCache;
+
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
- * Tracks active punishments by Discord user ID using MySQL database
+ * Tracks active punishments by Discord user ID using MySQL database.
+ * Lookups are served from an in-memory view that is kept coherent with other servers
+ * through the change log (see {@link ChangeLogPoller}).
+ *
+ * <p>In cached mode the view is not preloaded: lookups go through a size-bounded cache that
+ * also remembers "not punished" for a short time, and concurrent misses for the same user
+ * share one query. A Bloom filter of punished users answers "not punished" for everyone else
+ * without a query (see {@link #mightBePunished}).</p>
  */
 public class PunishmentTracker {
 
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
     private final DatabaseManager database;
+    private volatile Map<String, PunishmentInfo> active = new ConcurrentHashMap<>();
+    private final TinyLfuCache<String, CacheEntry> cache;
+    private final Map<String, CompletableFuture<PunishmentInfo>> loading = new ConcurrentHashMap<>();
+    private final long negativeTtl;
+    private final RebuildingBloomFilter filter = new RebuildingBloomFilter(10000);
 
     public PunishmentTracker(DatabaseManager database) {
+        this(database, 0, 0);
+    }
+
+    /**
+     * @param cacheSize   Maximum cached users, or 0 to keep every punishment in memory
+     * @param negativeTtl How long "not punished" results are cached (in milliseconds)
+     */
+    public PunishmentTracker(DatabaseManager database, int cacheSize, long negativeTtl) {
         this.database = database;
+        this.cache = cacheSize > 0 ? new TinyLfuCache<>(cacheSize) : null;
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * Whether lookups go through the bounded cache instead of a full in-memory view
+     */
+    public boolean isCached() {
+        return cache != null;
+    }
+
+    /**
+     * Replace the in-memory view with the current contents of the database
+     * (in cached mode, drop everything cached so it is read again)
+     *
+     * @return false if the database could not be read (the current view is kept)
+     */
+    public boolean load() {
+        if (cache != null) {
+            synchronized (cache) {
+                cache.clear();
+                loading.clear();
+            }
+            rebuildFilter();
+            return true;
+        }
+
+        Map<String, PunishmentInfo> punishments = database.getAllPunishments();
+        if (punishments == null) {
+            return false;
+        }
+        replaceAll(punishments);
+        return true;
+    }
+
+    /**
+     * Rebuild the cached mode filter of punished users from the database, dropping users who are
+     * no longer punished. The previous filter keeps answering until the new one is complete.
+     */
+    public void rebuildFilter() {
+        if (cache == null) {
+            return;
+        }
+
+        filter.rebuild(keys -> database.forEachPunishment((discordId, info) -> keys.accept(filterKey(discordId))));
+    }
+
+    /**
+     * Check, without a database query, whether a user could be punished.
+     * False is definite. True is exact in full mode, but in cached mode may be a false
+     * positive (or the filter is not built yet), so the caller still has to look the user up.
+     */
+    public boolean mightBePunished(String discordId) {
+        if (cache == null) {
+            return active.containsKey(discordId);
+        }
+        return filter.mightContain(filterKey(discordId));
+    }
+
+    /**
+     * Record a punished user in the cached mode filter
+     */
+    private void addToFilter(String discordId) {
+        if (cache == null) {
+            return;
+        }
+        filter.add(filterKey(discordId));
+    }
+
+    private static long filterKey(String discordId) {
+        try {
+            return Long.parseLong(discordId);
+        } catch (NumberFormatException e) {
+            return discordId.hashCode();
+        }
+    }
+
+    /**
+     * Replace the in-memory view with the punishments read from the database
+     */
+    void replaceAll(Map<String, PunishmentInfo> punishments) {
+        active.keySet().retainAll(punishments.keySet());
+        active.putAll(punishments);
+    }
+
+    /**
+     * Take over a loaded view as the in-memory view without copying it, so a large view is never
+     * held twice. Only for startup, before anything else writes to the view.
+     */
+    void adopt(ConcurrentHashMap<String, PunishmentInfo> punishments) {
+        active = punishments;
     }
 
     /**
-     * Add or update a punishment
+     * Apply a change made by another server
+     *
+     * @param discordId The Discord user ID
+     * @param info      The current punishment, or null if it was removed
+     */
+    void applyRemote(String discordId, PunishmentInfo info) {
+        if (cache != null) {
+            if (info != null) {
+                addToFilter(discordId);
+            }
+            // Only refresh users that are cached; others are read when first needed
+            synchronized (cache) {
+                if (info != null) {
+                    cache.replace(discordId, CacheEntry.punished(info));
+                } else {
+                    cache.invalidate(discordId);
+                }
+                loading.remove(discordId);
+            }
+            return;
+        }
+
+        if (info != null) {
+            active.put(discordId, info);
+        } else {
+            active.remove(discordId);
+        }
+    }
+
+    /**
+     * Get the number of punishments in the in-memory view (cached users in cached mode)
+     */
+    public int size() {
+        return cache != null ? cache.size() : active.size();
+    }
+
+    /**
+     * Add or update a punishment.
+     * The write is checked against the row version last seen; if another writer changed the row
+     * first, it is retried against the stored row unless that row holds the same or a newer
+     * punishment, which then wins.
      * 
      * @param discordId The Discord user ID
      * @param info      The punishment information
+     * @return Written (with its Discord action queued in the outbox), spooled to disk, failed, or a conflict
+     *         if a punishment stored by another writer took precedence
      */
-    public void addPunishment(String discordId, PunishmentInfo info) {
-        database.savePunishment(discordId, info);
+    public WriteResult addPunishment(String discordId, PunishmentInfo info) {
+        StoreWriteEvent event = new StoreWriteEvent();
+        event.begin();
+        PunishmentInfo existing = lookup(discordId);
+        long expectedVersion = existing != null ? existing.getVersion() : 0;
+
+        WriteResult result = database.savePunishment(discordId, info, expectedVersion);
+        for (int attempt = 1; result.isConflict() && attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            PunishmentInfo current = result.getCurrent();
+            if (current != null && current.getIssuedTime() >= info.getIssuedTime()) {
+                break;
+            }
+            result = database.savePunishment(discordId, info, current != null ? current.getVersion() : 0);
+        }
+
+        if (result.isWritten()) {
+            remember(discordId, info.withVersion(result.getVersion()));
+        } else if (result.isSpooled() || result.isFailed()) {
+            remember(discordId, info);
+        } else {
+            remember(discordId, result.getCurrent());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "save";
+            event.discordId = discordId;
+            event.punishmentType = info.getType();
+            event.commit();
+        }
+        return result;
     }
 
     /**
-     * Remove a punishment
+     * Remove a punishment.
+     * Only the given punishment is removed: if another writer has since replaced it with a
+     * different one, that one stays.
      * 
      * @param discordId The Discord user ID
+     * @param info      The punishment being removed, as last seen
+     * @return Written (with its Discord action queued in the outbox), spooled to disk, failed, or a conflict
+     *         if the punishment was already removed or replaced by another writer
      */
-    public void removePunishment(String discordId) {
-        database.removePunishment(discordId);
+    public WriteResult removePunishment(String discordId, PunishmentInfo info) {
+        StoreWriteEvent event = new StoreWriteEvent();
+        event.begin();
+        WriteResult result = database.removePunishment(discordId, info);
+        for (int attempt = 1; result.isConflict() && attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            PunishmentInfo current = result.getCurrent();
+            if (current == null || current.getIssuedTime() != info.getIssuedTime()) {
+                break;
+            }
+            // Same punishment, re-saved since it was read
+            result = database.removePunishment(discordId, current);
+        }
+
+        remember(discordId, result.isConflict() ? result.getCurrent() : null);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "remove";
+            event.discordId = discordId;
+            event.commit();
+        }
+        return result;
     }
 
     /**
@@ -40,7 +256,7 @@ public class PunishmentTracker {
      * @return true if the user has an active punishment
      */
     public boolean isPunished(String discordId) {
-        return database.isPunished(discordId);
+        return getPunishment(discordId) != null;
     }
 
     /**
@@ -50,39 +266,161 @@ public class PunishmentTracker {
      * @return The punishment info, or null if not punished
      */
     public PunishmentInfo getPunishment(String discordId) {
-        PunishmentInfo info = database.getPunishment(discordId);
+        TrackerLookupEvent event = new TrackerLookupEvent();
+        event.begin();
+        PunishmentInfo info = lookup(discordId);
         if (info != null && info.isExpired()) {
-            database.removePunishment(discordId);
-            return null;
+            // Left in place for the expiry task, which also lifts Discord enforcement
+            info = null;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.discordId = discordId;
+            event.found = info != null;
+            event.punishmentType = info != null ? info.getType() : null;
+            event.commit();
         }
         return info;
     }
 
     /**
-     * Get all expired punishments
+     * Claim a batch of expired punishments and drop them from the in-memory view
      * 
-     * @return Map of Discord ID to expired punishment info
+     * @param limit Maximum number of punishments to claim
+     * @return Map of Discord ID to claimed punishment info
      */
-    public Map<String, PunishmentInfo> getExpiredPunishments() {
-        return database.getExpiredPunishments();
+    public Map<String, PunishmentInfo> claimExpired(int limit) {
+        Map<String, PunishmentInfo> claimed = database.claimExpired(limit);
+        for (String discordId : claimed.keySet()) {
+            if (cache != null) {
+                synchronized (cache) {
+                    cache.invalidate(discordId);
+                    loading.remove(discordId);
+                }
+            } else {
+                active.computeIfPresent(discordId, (id, info) -> info.isExpired() ? null : info);
+            }
+        }
+        return claimed;
     }
 
     /**
-     * Remove all expired punishments
-     * 
-     * @return The number of punishments removed
+     * Visit every active punishment without copying them (streamed from the database in cached mode)
      */
-    public int cleanExpired() {
-        return database.cleanExpired();
+    public void forEachPunishment(BiConsumer<String, PunishmentInfo> visitor) {
+        if (cache != null) {
+            database.forEachPunishment(visitor);
+            return;
+        }
+        active.forEach(visitor);
     }
 
     /**
      * Get all active punishments
      * 
-     * @return Map of Discord ID to punishment info
+     * @return Map of Discord ID to punishment info, or null if cached mode could not read the database
      */
     public Map<String, PunishmentInfo> getAllPunishments() {
-        return database.getAllPunishments();
+        if (cache != null) {
+            return database.getAllPunishments();
+        }
+        return new HashMap<>(active);
+    }
+
+    /**
+     * Look a user up in the cache, loading on a miss. Concurrent misses for the same user wait
+     * for a single query.
+     */
+    private PunishmentInfo cachedLookup(String discordId) {
+        CacheEntry cached = cache.get(discordId);
+        if (cached != null && cached.isValid()) {
+            return cached.info;
+        }
+
+        CompletableFuture<PunishmentInfo> future = new CompletableFuture<>();
+        CompletableFuture<PunishmentInfo> inFlight = loading.putIfAbsent(discordId, future);
+        if (inFlight != null) {
+            return inFlight.join();
+        }
+
+        try {
+            PunishmentInfo info = database.getPunishment(discordId);
+            if (info != null) {
+                addToFilter(discordId);
+            }
+            synchronized (cache) {
+                // A write that raced with this query has already updated the cache
+                boolean current = loading.remove(discordId, future);
+                if (current && (info != null || !database.isDegraded())) {
+                    cache.put(discordId, info != null ? CacheEntry.punished(info)
+                            : CacheEntry.notPunished(System.currentTimeMillis() + negativeTtl));
+                }
+            }
+            future.complete(info);
+            return info;
+        } catch (RuntimeException e) {
+            loading.remove(discordId, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Look a user's punishment up, expired or not
+     */
+    private PunishmentInfo lookup(String discordId) {
+        return cache != null ? cachedLookup(discordId) : active.get(discordId);
+    }
+
+    /**
+     * Record the outcome of a write in the in-memory view
+     *
+     * @param info The stored punishment, or null if the user has none
+     */
+    private void remember(String discordId, PunishmentInfo info) {
+        if (cache != null) {
+            if (info != null) {
+                addToFilter(discordId);
+            }
+            cacheWrite(discordId, info != null ? CacheEntry.punished(info)
+                    : CacheEntry.notPunished(System.currentTimeMillis() + negativeTtl));
+        } else if (info != null) {
+            active.put(discordId, info);
+        } else {
+            active.remove(discordId);
+        }
+    }
+
+    private void cacheWrite(String discordId, CacheEntry entry) {
+        synchronized (cache) {
+            cache.put(discordId, entry);
+            loading.remove(discordId);
+        }
+    }
+
+    /**
+     * A cached lookup result: a punishment, or "not punished" until a deadline
+     */
+    private static final class CacheEntry {
+        private final PunishmentInfo info;
+        private final long validUntil;
+
+        private CacheEntry(PunishmentInfo info, long validUntil) {
+            this.info = info;
+            this.validUntil = validUntil;
+        }
+
+        static CacheEntry punished(PunishmentInfo info) {
+            return new CacheEntry(info, Long.MAX_VALUE);
+        }
+
+        static CacheEntry notPunished(long validUntil) {
+            return new CacheEntry(null, validUntil);
+        }
+
+        boolean isValid() {
+            return validUntil > System.currentTimeMillis();
+        }
     }
 
     /**
@@ -95,14 +433,33 @@ public class PunishmentTracker {
         private final String reason;
         private final long expiryTime; // -1 for permanent
         private final long issuedTime;
+        private final long version; // Row version it was read at, 0 if not stored yet
 
         public PunishmentInfo(UUID minecraftUuid, String minecraftName, String type, String reason, long expiryTime) {
+            this(minecraftUuid, minecraftName, type, reason, expiryTime, System.currentTimeMillis());
+        }
+
+        public PunishmentInfo(UUID minecraftUuid, String minecraftName, String type, String reason, long expiryTime,
+                long issuedTime) {
+            this(minecraftUuid, minecraftName, type, reason, expiryTime, issuedTime, 0);
+        }
+
+        public PunishmentInfo(UUID minecraftUuid, String minecraftName, String type, String reason, long expiryTime,
+                long issuedTime, long version) {
             this.minecraftUuid = minecraftUuid;
             this.minecraftName = minecraftName;
             this.type = type;
             this.reason = reason;
             this.expiryTime = expiryTime;
-            this.issuedTime = System.currentTimeMillis();
+            this.issuedTime = issuedTime;
+            this.version = version;
+        }
+
+        /**
+         * Copy this punishment at another row version
+         */
+        public PunishmentInfo withVersion(long version) {
+            return new PunishmentInfo(minecraftUuid, minecraftName, type, reason, expiryTime, issuedTime, version);
         }
 
         public boolean isExpired() {
@@ -172,5 +529,9 @@ public class PunishmentTracker {
         public long getIssuedTime() {
             return issuedTime;
         }
+
+        public long getVersion() {
+            return version;
+        }
     }
 }
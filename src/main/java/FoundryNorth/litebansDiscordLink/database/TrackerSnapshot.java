@@ -0,0 +1,177 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot of the tracker's in-memory view on local disk.
+ * The snapshot records the database it was taken from and the change log sequence it
+ * reflects, so a restart only has to apply the changes made since.
+ *
+ * <p>Layout: magic, format version, database ID, change log sequence, entry count, the
+ * entries, then a CRC32 of everything before it.</p>
+ */
+public class TrackerSnapshot {
+
+    private static final int MAGIC = 0x4C444C53; // "LDLS"
+    private static final int FORMAT_VERSION = 2; // 2: entries carry their row version
+
+    private final File file;
+
+    public TrackerSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Write a snapshot, replacing the previous one atomically
+     */
+    public void write(String databaseId, long seq, Map<String, PunishmentTracker.PunishmentInfo> punishments)
+            throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(temp.toPath());
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), crc);
+                DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, databaseId);
+            out.writeLong(seq);
+            out.writeInt(punishments.size());
+
+            for (Map.Entry<String, PunishmentTracker.PunishmentInfo> entry : punishments.entrySet()) {
+                PunishmentTracker.PunishmentInfo info = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeLong(info.getMinecraftUuid().getMostSignificantBits());
+                out.writeLong(info.getMinecraftUuid().getLeastSignificantBits());
+                writeString(out, info.getMinecraftName());
+                writeString(out, info.getType());
+                writeString(out, info.getReason());
+                out.writeLong(info.getExpiryTime());
+                out.writeLong(info.getIssuedTime());
+                out.writeLong(info.getVersion());
+            }
+
+            out.flush();
+            // Checksum trails the data and is not part of it
+            fileOut.write(ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).array());
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the snapshot into a map sized for it that the tracker takes over as is.
+     * The file is read onto the heap rather than mapped, since a mapping held until GC keeps
+     * the next snapshot from replacing the file on Windows.
+     *
+     * @return The snapshot, or null if there is none or it is unreadable or corrupt
+     */
+    public Data read() throws IOException {
+        if (!file.isFile() || file.length() < Long.BYTES) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            int dataLength = buffer.capacity() - Long.BYTES;
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(dataLength));
+            if (crc.getValue() != buffer.getLong(dataLength)) {
+                return null;
+            }
+
+            buffer.limit(dataLength);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+
+            String databaseId = readString(buffer);
+            long seq = buffer.getLong();
+            int count = buffer.getInt();
+
+            ConcurrentHashMap<String, PunishmentTracker.PunishmentInfo> punishments =
+                    new ConcurrentHashMap<>(Math.max(16, count));
+            for (int i = 0; i < count; i++) {
+                String discordId = readString(buffer);
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                String name = readString(buffer);
+                String type = readString(buffer);
+                String reason = readString(buffer);
+                long expiryTime = buffer.getLong();
+                long issuedTime = buffer.getLong();
+                long version = buffer.getLong();
+                punishments.put(discordId,
+                        new PunishmentTracker.PunishmentInfo(uuid, name, type, reason, expiryTime, issuedTime, version));
+            }
+            return new Data(databaseId, seq, punishments);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Contents of a snapshot
+     */
+    public static class Data {
+        private final String databaseId;
+        private final long seq;
+        private final ConcurrentHashMap<String, PunishmentTracker.PunishmentInfo> punishments;
+
+        Data(String databaseId, long seq, ConcurrentHashMap<String, PunishmentTracker.PunishmentInfo> punishments) {
+            this.databaseId = databaseId;
+            this.seq = seq;
+            this.punishments = punishments;
+        }
+
+        public String getDatabaseId() {
+            return databaseId;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public ConcurrentHashMap<String, PunishmentTracker.PunishmentInfo> getPunishments() {
+            return punishments;
+        }
+    }
+}
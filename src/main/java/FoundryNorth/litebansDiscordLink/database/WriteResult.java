@@ -0,0 +1,86 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+/**
+ * Outcome of a punishment write.
+ * Writes are compare-and-set against the row version the caller last saw; a conflict means
+ * another writer changed the row first and carries the row as it is now, so the caller can
+ * decide whether to retry against it.
+ */
+public final class WriteResult {
+
+    private static final WriteResult SPOOLED = new WriteResult(Status.SPOOLED, 0, null);
+    private static final WriteResult FAILED = new WriteResult(Status.FAILED, 0, null);
+
+    public enum Status {
+        WRITTEN, SPOOLED, CONFLICT, FAILED
+    }
+
+    private final Status status;
+    private final long version;
+    private final PunishmentTracker.PunishmentInfo current;
+
+    private WriteResult(Status status, long version, PunishmentTracker.PunishmentInfo current) {
+        this.status = status;
+        this.version = version;
+        this.current = current;
+    }
+
+    /**
+     * @param version The row's version after the write (0 once removed)
+     */
+    static WriteResult written(long version) {
+        return new WriteResult(Status.WRITTEN, version, null);
+    }
+
+    static WriteResult spooled() {
+        return SPOOLED;
+    }
+
+    /**
+     * The database rejected the write outright; it was set aside rather than spooled
+     */
+    static WriteResult failed() {
+        return FAILED;
+    }
+
+    /**
+     * @param current The row as stored now, or null if there is none
+     */
+    static WriteResult conflict(PunishmentTracker.PunishmentInfo current) {
+        return new WriteResult(Status.CONFLICT, current != null ? current.getVersion() : 0, current);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isWritten() {
+        return status == Status.WRITTEN;
+    }
+
+    public boolean isSpooled() {
+        return status == Status.SPOOLED;
+    }
+
+    public boolean isConflict() {
+        return status == Status.CONFLICT;
+    }
+
+    public boolean isFailed() {
+        return status == Status.FAILED;
+    }
+
+    /**
+     * Get the row version after a write, or the stored version on a conflict
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the stored punishment that caused a conflict (null if the row no longer exists)
+     */
+    public PunishmentTracker.PunishmentInfo getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,156 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Append-only local file of punishment writes that could not reach the database.
+ * Entries are replayed in order once the database is reachable again.
+ */
+public class WriteSpool {
+
+    private final File file;
+
+    public WriteSpool(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Spool a punishment upsert
+     */
+    public synchronized void appendSave(String discordId, PunishmentTracker.PunishmentInfo info) throws IOException {
+        append(String.join("\t", "SAVE", discordId,
+                info.getMinecraftUuid().toString(),
+                encode(info.getMinecraftName()),
+                info.getType(),
+                encode(info.getReason()),
+                Long.toString(info.getExpiryTime()),
+                Long.toString(info.getIssuedTime())));
+    }
+
+    /**
+     * Spool a punishment removal
+     *
+     * @param issuedTime Issue time of the punishment being removed, so a newer one is left alone on replay
+     */
+    public synchronized void appendRemove(String discordId, long issuedTime) throws IOException {
+        append(String.join("\t", "REMOVE", discordId, Long.toString(issuedTime)));
+    }
+
+    /**
+     * Check if there are spooled writes waiting
+     */
+    public synchronized boolean hasPending() {
+        return file.exists() && file.length() > 0;
+    }
+
+    /**
+     * Read all spooled writes in order
+     */
+    public synchronized List<Entry> read() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.split("\t", -1);
+            if (parts[0].equals("SAVE") && parts.length == 8) {
+                PunishmentTracker.PunishmentInfo info = new PunishmentTracker.PunishmentInfo(
+                        UUID.fromString(parts[2]), decode(parts[3]), parts[4], decode(parts[5]),
+                        Long.parseLong(parts[6]), Long.parseLong(parts[7]));
+                entries.add(new Entry(parts[1], info, info.getIssuedTime()));
+            } else if (parts[0].equals("REMOVE") && parts.length == 3) {
+                entries.add(new Entry(parts[1], null, Long.parseLong(parts[2])));
+            } else if (parts[0].equals("REMOVE") && parts.length == 2) {
+                // Spooled before removals recorded what they removed
+                entries.add(new Entry(parts[1], null, -1));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Drop the first {@code count} entries after they have been replayed.
+     * Entries appended during the replay are kept.
+     */
+    public synchronized void consume(int count) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        lines.removeIf(String::isBlank);
+        List<String> remaining = lines.subList(Math.min(count, lines.size()), lines.size());
+        Files.write(file.toPath(), remaining, StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.CREATE);
+    }
+
+    private void append(String line) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+
+    private static String encode(String value) {
+        if (value == null) {
+            return "";
+        }
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        return new String(Base64.getDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A spooled write; {@code info} is null for removals
+     */
+    public static class Entry {
+        private final String discordId;
+        private final PunishmentTracker.PunishmentInfo info;
+        private final long issuedTime;
+
+        Entry(String discordId, PunishmentTracker.PunishmentInfo info, long issuedTime) {
+            this.discordId = discordId;
+            this.info = info;
+            this.issuedTime = issuedTime;
+        }
+
+        public String getDiscordId() {
+            return discordId;
+        }
+
+        public PunishmentTracker.PunishmentInfo getInfo() {
+            return info;
+        }
+
+        /**
+         * Get the issue time of the punishment saved or removed, or -1 if not recorded
+         */
+        public long getIssuedTime() {
+            return issuedTime;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package FoundryNorth.litebansDiscordLink.discord;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import github.scarsz.discordsrv.DiscordSRV;
+import github.scarsz.discordsrv.dependencies.jda.api.JDA;
+import github.scarsz.discordsrv.dependencies.jda.api.entities.PrivateChannel;
+import github.scarsz.discordsrv.dependencies.jda.api.exceptions.ErrorResponseException;
+import github.scarsz.discordsrv.dependencies.jda.api.requests.ErrorResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends direct messages to users.
+ * Opened private channel IDs are cached per user, users with closed DMs are skipped for a
+ * while after the first failure, and messages queued for the same user within a short window
+ * are merged into a single message.
+ */
+public class DirectMessenger {
+
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+    private static final String SEPARATOR = "\n\n";
+
+    private final LitebansDiscordLink plugin;
+    private final DiscordRest rest;
+    private final long coalesceMillis;
+    private final long closedTtl;
+    private final Map<String, String> channelIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> closed = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> pending = new HashMap<>();
+    private final Counter dms;
+
+    public DirectMessenger(LitebansDiscordLink plugin, DiscordRest rest) {
+        this.plugin = plugin;
+        this.rest = rest;
+        this.coalesceMillis = plugin.getConfig().getLong("dm.coalesce-window", 2000);
+        this.closedTtl = TimeUnit.MINUTES.toMillis(plugin.getConfig().getLong("dm.closed-dm-ttl", 60));
+        this.dms = plugin.getMetrics().counter("ldl_dm_messages_total",
+                "Direct message notifications by outcome", "result");
+    }
+
+    /**
+     * Queue a direct message to a user
+     */
+    public void send(String discordId, String message) {
+        Long until = closed.get(discordId);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                dms.labels("skipped_closed").inc();
+                return;
+            }
+            closed.remove(discordId, until);
+        }
+
+        if (coalesceMillis <= 0) {
+            deliver(discordId, List.of(message));
+            return;
+        }
+
+        boolean schedule;
+        synchronized (pending) {
+            List<String> queued = pending.computeIfAbsent(discordId, id -> new ArrayList<>());
+            schedule = queued.isEmpty();
+            queued.add(message);
+        }
+        if (schedule) {
+            plugin.getScheduler().runAsyncLater(() -> flush(discordId), coalesceMillis, TimeUnit.MILLISECONDS);
+        } else {
+            dms.labels("merged").inc();
+        }
+    }
+
+    /**
+     * Send every queued message now instead of waiting for its coalescing window (used on shutdown)
+     */
+    public void flushAll() {
+        List<String> discordIds;
+        synchronized (pending) {
+            discordIds = new ArrayList<>(pending.keySet());
+        }
+        discordIds.forEach(this::flush);
+    }
+
+    private void flush(String discordId) {
+        List<String> messages;
+        synchronized (pending) {
+            messages = pending.remove(discordId);
+        }
+        if (messages != null && !messages.isEmpty()) {
+            deliver(discordId, merge(messages));
+        }
+    }
+
+    /**
+     * Send the messages over the cached private channel, opening one if needed
+     */
+    private void deliver(String discordId, List<String> messages) {
+        JDA jda = DiscordSRV.getPlugin().getJda();
+        if (jda == null) {
+            return;
+        }
+
+        String channelId = channelIds.get(discordId);
+        PrivateChannel channel = channelId != null ? jda.getPrivateChannelById(channelId) : null;
+        if (channel != null) {
+            sendAll(discordId, channel, messages);
+            return;
+        }
+
+        rest.queue("open_dm", jda.openPrivateChannelById(discordId), opened -> {
+            channelIds.put(discordId, opened.getId());
+            sendAll(discordId, opened, messages);
+        }, error -> {
+            dms.labels("failed").inc();
+            if (plugin.isDebug()) {
+                plugin.getLogger().warning("Failed to open DM channel with " + discordId + ": " + error.getMessage());
+            }
+        });
+    }
+
+    private void sendAll(String discordId, PrivateChannel channel, List<String> messages) {
+        for (String message : messages) {
+            rest.queue("send_dm", channel.sendMessage(message),
+                    success -> {
+                        dms.labels("sent").inc();
+                        if (plugin.isDebug()) {
+                            plugin.getLogger().info("Sent notification DM to " + discordId);
+                        }
+                    },
+                    error -> {
+                        dms.labels("failed").inc();
+                        if (error instanceof ErrorResponseException
+                                && ((ErrorResponseException) error).getErrorResponse() == ErrorResponse.CANNOT_SEND_TO_USER) {
+                            // DMs closed: stop trying for a while
+                            long now = System.currentTimeMillis();
+                            closed.values().removeIf(until -> until <= now);
+                            closed.put(discordId, now + closedTtl);
+                        } else if (error instanceof ErrorResponseException
+                                && ((ErrorResponseException) error).getErrorResponse() == ErrorResponse.UNKNOWN_CHANNEL) {
+                            channelIds.remove(discordId);
+                        }
+                        if (plugin.isDebug()) {
+                            plugin.getLogger().warning("Failed to send DM to " + discordId + ": " + error.getMessage());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Join queued messages, splitting only where the result would exceed Discord's length limit
+     */
+    private static List<String> merge(List<String> messages) {
+        List<String> merged = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String message : messages) {
+            if (current.length() > 0 && current.length() + SEPARATOR.length() + message.length() > MAX_MESSAGE_LENGTH) {
+                merged.add(current.toString());
+                current.setLength(0);
+            }
+            if (current.length() > 0) {
+                current.append(SEPARATOR);
+            }
+            current.append(message);
+        }
+        if (current.length() > 0) {
+            merged.add(current.toString());
+        }
+        return merged;
+    }
+}
@@ -1,34 +1,69 @@
 package FoundryNorth.litebansDiscordLink.discord;
 
 import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.OutboxEntry;
 import FoundryNorth.litebansDiscordLink.database.PunishmentTracker;
+import FoundryNorth.litebansDiscordLink.database.WriteResult;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import FoundryNorth.litebansDiscordLink.metrics.Histogram;
 import github.scarsz.discordsrv.DiscordSRV;
 import github.scarsz.discordsrv.api.Subscribe;
 import github.scarsz.discordsrv.api.events.AccountLinkedEvent;
+import github.scarsz.discordsrv.api.events.DiscordReadyEvent;
 import github.scarsz.discordsrv.dependencies.jda.api.entities.*;
 import github.scarsz.discordsrv.dependencies.jda.api.events.guild.member.GuildMemberJoinEvent;
+import github.scarsz.discordsrv.dependencies.jda.api.events.guild.voice.GuildVoiceJoinEvent;
+import github.scarsz.discordsrv.dependencies.jda.api.events.guild.voice.GuildVoiceMoveEvent;
 import github.scarsz.discordsrv.dependencies.jda.api.events.message.MessageReceivedEvent;
 import github.scarsz.discordsrv.dependencies.jda.api.hooks.ListenerAdapter;
 import litebans.api.Database;
-import org.bukkit.Bukkit;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Handles DiscordSRV events and Discord user management
  */
 public class DiscordManager extends ListenerAdapter {
 
+    private static final long MAX_TIMEOUT_MILLIS = TimeUnit.DAYS.toMillis(28);
+    private static final long TIMEOUT_RENEW_WINDOW = TimeUnit.DAYS.toMillis(2);
+
     private final LitebansDiscordLink plugin;
     private final PunishmentTracker tracker;
+    private final DiscordRest rest;
+    private volatile List<EnforcedGuild> guilds;
+    private final DirectMessenger messenger;
+    private final AtomicBoolean attached = new AtomicBoolean();
+    private final Histogram messageCheckLatency;
+    private final Counter discordEvents;
+    private final AtomicLong lastDropWarning = new AtomicLong();
 
     public DiscordManager(LitebansDiscordLink plugin, PunishmentTracker tracker) {
         this.plugin = plugin;
         this.tracker = tracker;
+        this.rest = new DiscordRest(plugin.getMetrics());
+        this.guilds = EnforcedGuild.load(plugin, rest);
+        this.messenger = new DirectMessenger(plugin, rest);
+        this.messageCheckLatency = plugin.getMetrics().histogram("ldl_discord_message_check_seconds",
+                "Time to check a Discord message author against the tracker", Histogram.LATENCY_BUCKETS);
+        this.discordEvents = plugin.getMetrics().counter("ldl_discord_events_total",
+                "Discord events by how they were handled", "event", "result");
     }
 
     /**
-     * Initialize the Discord manager and register with DiscordSRV
+     * Register with DiscordSRV. Discord listeners are attached right away if DiscordSRV is already
+     * connected, otherwise when it fires its ready event.
      */
     public void initialize() {
         DiscordSRV discordSRV = DiscordSRV.getPlugin();
@@ -37,20 +72,63 @@ public class DiscordManager extends ListenerAdapter {
             return;
         }
 
-        // Wait for DiscordSRV to be ready
-        if (discordSRV.getJda() == null) {
+        // Register DiscordSRV API listener for account linking and ready events
+        DiscordSRV.api.subscribe(this);
+
+        if (discordSRV.getJda() != null) {
+            attachListeners();
+        } else {
             plugin.getLogger().info("Waiting for DiscordSRV to be ready...");
-            Bukkit.getScheduler().runTaskLater(plugin, this::initialize, 20L); // Try again in 1 second
+        }
+    }
+
+    /**
+     * Log the effective enforcement settings of every guild
+     */
+    public void logSettings() {
+        for (EnforcedGuild target : guilds) {
+            String name = target.isMain() ? "Main guild" : "Guild '" + target.getName() + "'";
+            String roleId = target.getMutedRoleId();
+            if (roleId == null) {
+                plugin.getLogger().warning(name + ": no muted role configured! Only message deletion will be used.");
+                plugin.getLogger().warning("Set 'muted-role-id' in config.yml to enable role-based enforcement.");
+            } else {
+                plugin.getLogger().info(name + ": muted role ID " + roleId);
+            }
+            plugin.getLogger().info(name + ": server mute enforcement "
+                    + (target.appliesServerMute() ? "ENABLED" : "DISABLED")
+                    + (target.usesTimeouts() ? ", mutes enforced with timeouts" : ""));
+        }
+    }
+
+    /**
+     * Attach the Discord listeners once DiscordSRV has connected
+     */
+    @Subscribe
+    public void onDiscordReady(DiscordReadyEvent event) {
+        attachListeners();
+    }
+
+    private void attachListeners() {
+        if (!attached.compareAndSet(false, true)) {
             return;
         }
 
+        guilds = EnforcedGuild.withoutMainGuild(plugin, guilds);
+
         // Register our listener with JDA
-        discordSRV.getJda().addEventListener(this);
+        DiscordSRV.getPlugin().getJda().addEventListener(this);
 
-        // Register DiscordSRV API listener for account linking events
-        DiscordSRV.api.subscribe(this);
+        // Keep timeouts of long and permanent mutes from running out
+        if (guilds.stream().anyMatch(EnforcedGuild::usesTimeouts)) {
+            plugin.getScheduler().runAsyncTimer(this::renewTimeouts, 1, 6, TimeUnit.HOURS);
+        }
+
+        plugin.getLogger().info("Discord manager initialized successfully! Enforcing in " + guilds.size()
+                + " guild(s)");
 
-        plugin.getLogger().info("Discord manager initialized successfully!");
+        // Carry out Discord actions recorded while DiscordSRV was connecting
+        plugin.getOutbox().wake();
     }
 
     /**
@@ -68,6 +146,22 @@ public class DiscordManager extends ListenerAdapter {
         plugin.getLogger().info("Discord manager unregistered");
     }
 
+    /**
+     * Send direct messages still waiting in their coalescing window
+     */
+    public void flushMessages() {
+        messenger.flushAll();
+    }
+
+    /**
+     * Wait for Discord requests that have been sent but not answered yet
+     *
+     * @return false if requests were still in flight at the timeout
+     */
+    public boolean awaitRequests(long timeoutMillis) {
+        return rest.awaitIdle(timeoutMillis);
+    }
+
     /**
      * Handle a new punishment from Litebans
      */
@@ -95,10 +189,27 @@ public class DiscordManager extends ListenerAdapter {
         // Calculate expiry time (-1 for permanent)
         long expiryTime = duration == -1 ? -1 : System.currentTimeMillis() + duration;
 
-        // Add to tracker
+        // Already enforced (same event seen twice, or replayed by catch-up)
+        if (isAlreadyTracked(discordId, type, expiryTime)) {
+            if (plugin.isDebug()) {
+                plugin.getLogger().info("Punishment for " + minecraftName + " is already tracked, skipping");
+            }
+            return;
+        }
+
+        // Add to tracker (which queues the Discord enforcement in the outbox)
         PunishmentTracker.PunishmentInfo info = new PunishmentTracker.PunishmentInfo(
                 uuid, minecraftName, type, reason, expiryTime);
-        tracker.addPunishment(discordId, info);
+        WriteResult stored = tracker.addPunishment(discordId, info);
+
+        // Another server's write won: it logs, notifies and enforces its own punishment
+        if (stored.isConflict()) {
+            if (plugin.isDebug()) {
+                plugin.getLogger().info("Punishment for " + minecraftName
+                        + " was superseded by another server's write");
+            }
+            return;
+        }
 
         // Log punishment
         plugin.getPunishmentLogger().logPunishment(minecraftName, minecraftUuid, discordId, type, reason, duration);
@@ -111,8 +222,27 @@ public class DiscordManager extends ListenerAdapter {
         // Send DM notification
         sendPunishmentNotification(discordId, type, reason, expiryTime, minecraftName);
 
-        // Apply Discord enforcement
-        applyDiscordPunishment(discordId, info, minecraftName, reason, duration);
+        // Apply Discord enforcement: through the outbox, or right away if the database is unavailable
+        if (stored.isWritten()) {
+            plugin.getOutbox().wake();
+        } else {
+            applyDiscordPunishment(discordId, info, minecraftName, reason, duration, Set.of());
+        }
+    }
+
+    /**
+     * Check if an identical punishment is already tracked for a Discord user
+     */
+    private boolean isAlreadyTracked(String discordId, String type, long expiryTime) {
+        PunishmentTracker.PunishmentInfo existing = tracker.getPunishment(discordId);
+        if (existing == null || !existing.getType().equals(type)) {
+            return false;
+        }
+        if (existing.isPermanent() || expiryTime == -1) {
+            return existing.isPermanent() && expiryTime == -1;
+        }
+        // Expiry is derived from a duration, so allow for a little clock drift
+        return Math.abs(existing.getExpiryTime() - expiryTime) < 5000;
     }
 
     /**
@@ -135,175 +265,412 @@ public class DiscordManager extends ListenerAdapter {
 
         PunishmentTracker.PunishmentInfo info = tracker.getPunishment(discordId);
         if (info != null && info.getType().equals(type)) {
+            WriteResult stored = tracker.removePunishment(discordId, info);
+
+            // On a conflict the punishment was already removed, or replaced, by another server
+            if (stored.isConflict()) {
+                if (plugin.isDebug()) {
+                    plugin.getLogger().info("Punishment already changed by another server for Discord ID: "
+                            + discordId);
+                }
+                return;
+            }
+
             // Log removal
             plugin.getPunishmentLogger().logRemoval(info.getMinecraftName(), uuid.toString(), discordId, type);
 
-            tracker.removePunishment(discordId);
+            // Remove Discord enforcement: through the outbox, or right away if the database is unavailable
+            if (stored.isWritten()) {
+                plugin.getOutbox().wake();
+            } else {
+                removeDiscordPunishment(discordId, info.getMinecraftName(), type, false, Set.of());
+            }
 
             if (plugin.isDebug()) {
                 plugin.getLogger().info("Removed punishment tracking for Discord ID: " + discordId);
             }
+        }
+    }
 
-            // Remove Discord enforcement
-            removeDiscordPunishment(discordId, info);
+    /**
+     * Apply Discord punishments (role + server mute) in every enforced guild at once
+     *
+     * @param skip Names of guilds to leave out, where the punishment is already applied
+     * @return Each guild's result by name: completes once the guild has accepted every call, or
+     *         exceptionally if one failed
+     */
+    private Map<String, CompletableFuture<Void>> applyDiscordPunishment(String discordId,
+            PunishmentTracker.PunishmentInfo info, String minecraftName, String reason, long duration,
+            Set<String> skip) {
+        Map<String, CompletableFuture<Void>> results = new LinkedHashMap<>();
+        for (EnforcedGuild target : guilds) {
+            if (!skip.contains(target.getName())) {
+                results.put(target.getName(), applyInGuild(target, discordId, info, minecraftName, reason, duration));
+            }
         }
+        return results;
     }
 
     /**
-     * Apply Discord punishments (role + server mute)
+     * Apply Discord punishments (role + server mute) in one guild
      */
-    private void applyDiscordPunishment(String discordId, PunishmentTracker.PunishmentInfo info,
-            String minecraftName, String reason, long duration) {
-        Guild guild = getMainGuild();
+    private CompletableFuture<Void> applyInGuild(EnforcedGuild target, String discordId,
+            PunishmentTracker.PunishmentInfo info, String minecraftName, String reason, long duration) {
+        Guild guild = getGuild(target);
         if (guild == null)
-            return;
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Guild " + target.getName() + " is not connected"));
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        target.getMembers().resolve(guild, discordId, failOnThrow(result, member -> {
+            List<CompletableFuture<?>> actions = new ArrayList<>();
 
-        guild.retrieveMemberById(discordId).queue(member -> {
             // Apply muted role if configured
-            String roleId = plugin.getConfig().getString("muted-role-id", "0");
-            if (!roleId.equals("0") && !roleId.isEmpty()) {
+            String roleId = target.getMutedRoleId();
+            if (roleId != null) {
                 Role mutedRole = guild.getRoleById(roleId);
-                if (mutedRole != null) {
-                    guild.addRoleToMember(member, mutedRole).queue(
-                            success -> {
+                if (mutedRole == null) {
+                    plugin.getLogger().warning("Muted role not found with ID: " + roleId + describe(target));
+                } else if (!member.getRoles().contains(mutedRole)) {
+                    actions.add(target.getRest().submit("add_role", guild.addRoleToMember(member, mutedRole))
+                            .whenComplete((success, error) -> {
+                                if (error != null) {
+                                    plugin.getLogger().warning("Failed to apply muted role" + describe(target) + ": "
+                                            + error.getMessage());
+                                    return;
+                                }
                                 plugin.getPunishmentLogger().logDiscordAction(discordId, "Role Applied",
-                                        "Added muted role to " + member.getEffectiveName());
-                                // Send Discord channel log
-                                sendLogChannelMessage("role-applied", member, mutedRole, minecraftName,
-                                        info.getType(), reason, duration);
+                                        "Added muted role to " + member.getEffectiveName() + describe(target));
+                                // Send Discord channel log (the log channel lives in the main guild)
+                                if (target.isMain()) {
+                                    sendLogChannelMessage("role-applied", member, mutedRole, minecraftName,
+                                            info.getType(), reason, duration);
+                                }
                                 if (plugin.isDebug()) {
-                                    plugin.getLogger().info("Applied muted role to " + member.getEffectiveName());
+                                    plugin.getLogger().info("Applied muted role to " + member.getEffectiveName()
+                                            + describe(target));
                                 }
-                            },
-                            error -> plugin.getLogger().warning("Failed to apply muted role: " + error.getMessage()));
-                } else {
-                    plugin.getLogger().warning("Muted role not found with ID: " + roleId);
+                            }));
                 }
             }
 
             // Apply server mute if configured
-            if (plugin.getConfig().getBoolean("apply-server-mute", true)) {
-                if (!member.getVoiceState().isMuted()) {
-                    member.mute(true).queue(
-                            success -> {
-                                plugin.getPunishmentLogger().logDiscordAction(discordId, "Server Mute Applied",
-                                        "Applied server mute to " + member.getEffectiveName());
-                                if (plugin.isDebug()) {
-                                    plugin.getLogger().info("Applied server mute to " + member.getEffectiveName());
-                                }
-                            },
-                            error -> plugin.getLogger().warning("Failed to apply server mute: " + error.getMessage()));
-                }
+            if (target.appliesServerMute()) {
+                actions.add(applyServerMute(target, member, discordId));
             }
-        }, error -> {
+
+            // Apply a native timeout so Discord blocks messages itself
+            if (target.usesTimeout(info.getType())) {
+                actions.add(applyTimeout(target, member, discordId, info));
+            }
+
+            completeAll(result, actions);
+        }), () -> {
             if (plugin.isDebug()) {
-                plugin.getLogger().info("User not in Discord server: " + discordId);
+                plugin.getLogger().info("User not in Discord server" + describe(target) + ": " + discordId);
             }
-        });
+            // Nothing to do until they join, which reapplies the punishment
+            result.complete(null);
+        }, result::completeExceptionally);
+        return result;
     }
 
     /**
-     * Remove Discord punishments (role + server mute)
+     * Remove Discord punishments (role + server mute) in every enforced guild at once
+     *
+     * @param expired Whether the punishment ran out (rather than being removed), for logging
+     * @param skip    Names of guilds to leave out, where the punishment is already removed
+     * @return Each guild's result by name: completes once the guild has accepted every call, or
+     *         exceptionally if one failed
      */
-    private void removeDiscordPunishment(String discordId, PunishmentTracker.PunishmentInfo info) {
-        Guild guild = getMainGuild();
+    private Map<String, CompletableFuture<Void>> removeDiscordPunishment(String discordId, String minecraftName,
+            String type, boolean expired, Set<String> skip) {
+        Map<String, CompletableFuture<Void>> results = new LinkedHashMap<>();
+        for (EnforcedGuild target : guilds) {
+            if (!skip.contains(target.getName())) {
+                results.put(target.getName(), removeInGuild(target, discordId, minecraftName, type, expired));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Remove Discord punishments (role + server mute) in one guild
+     */
+    private CompletableFuture<Void> removeInGuild(EnforcedGuild target, String discordId, String minecraftName,
+            String type, boolean expired) {
+        Guild guild = getGuild(target);
         if (guild == null)
-            return;
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Guild " + target.getName() + " is not connected"));
+
+        String logSuffix = describe(target) + (expired ? " (expired)" : "");
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        target.getMembers().resolve(guild, discordId, failOnThrow(result, member -> {
+            List<CompletableFuture<?>> actions = new ArrayList<>();
 
-        guild.retrieveMemberById(discordId).queue(member -> {
             // Remove muted role if configured
-            String roleId = plugin.getConfig().getString("muted-role-id", "0");
-            if (!roleId.equals("0") && !roleId.isEmpty()) {
+            String roleId = target.getMutedRoleId();
+            if (roleId != null) {
                 Role mutedRole = guild.getRoleById(roleId);
                 if (mutedRole != null && member.getRoles().contains(mutedRole)) {
-                    guild.removeRoleFromMember(member, mutedRole).queue(
-                            success -> {
-                                // Send Discord channel log
-                                sendLogChannelMessage("role-removed", member, mutedRole, info.getMinecraftName(),
-                                        info.getType(), null, -1);
+                    actions.add(target.getRest().submit("remove_role", guild.removeRoleFromMember(member, mutedRole))
+                            .whenComplete((success, error) -> {
+                                if (error != null) {
+                                    plugin.getLogger().warning("Failed to remove muted role" + describe(target) + ": "
+                                            + error.getMessage());
+                                    return;
+                                }
+                                // Send Discord channel log (the log channel lives in the main guild)
+                                if (target.isMain()) {
+                                    sendLogChannelMessage(expired ? "punishment-expired" : "role-removed", member,
+                                            mutedRole, minecraftName, type, null, -1);
+                                }
                                 if (plugin.isDebug()) {
-                                    plugin.getLogger().info("Removed muted role from " + member.getEffectiveName());
+                                    plugin.getLogger().info(
+                                            "Removed muted role from " + member.getEffectiveName() + logSuffix);
                                 }
-                            },
-                            error -> plugin.getLogger().warning("Failed to remove muted role: " + error.getMessage()));
+                            }));
                 }
             }
 
             // Remove server mute if configured
-            if (plugin.getConfig().getBoolean("apply-server-mute", true)) {
-                if (member.getVoiceState().isMuted()) {
-                    member.mute(false).queue(
-                            success -> {
-                                if (plugin.isDebug()) {
-                                    plugin.getLogger().info("Removed server mute from " + member.getEffectiveName());
-                                }
-                            },
-                            error -> plugin.getLogger().warning("Failed to remove server mute: " + error.getMessage()));
-                }
+            if (target.appliesServerMute()) {
+                actions.add(removeServerMute(target, member, logSuffix));
+            }
+
+            // Lift the timeout if one was applied
+            if (target.usesTimeout(type)) {
+                actions.add(removeTimeout(target, member, logSuffix));
             }
-        }, error -> {
+
+            completeAll(result, actions);
+        }), () -> {
             if (plugin.isDebug()) {
-                plugin.getLogger().info("User not in Discord server: " + discordId);
+                plugin.getLogger().info("User not in Discord server" + describe(target) + ": " + discordId);
+            }
+            result.complete(null);
+        }, result::completeExceptionally);
+        return result;
+    }
+
+    /**
+     * JDA rejects some calls before sending them (role hierarchy, missing permission) by throwing;
+     * fail the result then instead of leaving it pending
+     */
+    private static Consumer<Member> failOnThrow(CompletableFuture<?> result, Consumer<Member> action) {
+        return member -> {
+            try {
+                action.accept(member);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+    }
+
+    /**
+     * Complete a result once every action has finished, failing it if any action failed
+     */
+    private static void completeAll(CompletableFuture<Void> result, List<CompletableFuture<?>> actions) {
+        CompletableFuture.allOf(actions.toArray(new CompletableFuture[0])).whenComplete((success, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(null);
             }
         });
     }
 
     /**
-     * Public method to remove Discord enforcement (for expired punishments)
+     * Server mute a punished member. In lazy mode, members who are not in voice are
+     * muted by the voice listener when they join instead.
      */
-    public void removeDiscordEnforcement(String discordId, PunishmentTracker.PunishmentInfo info) {
-        removeDiscordPunishmentExpired(discordId, info);
+    private CompletableFuture<?> applyServerMute(EnforcedGuild target, Member member, String discordId) {
+        target.getPendingUnmute().remove(discordId);
+        if (target.isLazyVoiceMute() && !inVoice(member)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Self mutes do not count; without the voice state cache the mute is unknown, so send it anyway
+        GuildVoiceState voiceState = member.getVoiceState();
+        if (voiceState != null && voiceState.isGuildMuted()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return target.getRest().submit("mute", member.mute(true)).whenComplete((success, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning(
+                        "Failed to apply server mute" + describe(target) + ": " + error.getMessage());
+                return;
+            }
+            plugin.getPunishmentLogger().logDiscordAction(discordId, "Server Mute Applied",
+                    "Applied server mute to " + member.getEffectiveName() + describe(target));
+            if (plugin.isDebug()) {
+                plugin.getLogger().info("Applied server mute to " + member.getEffectiveName() + describe(target));
+            }
+        });
     }
 
     /**
-     * Remove Discord punishments for expired punishments (with different log
-     * message)
+     * Lift the server mute of a member. In lazy mode, members who are not in voice are
+     * unmuted by the voice listener when they next join (Discord rejects the call otherwise).
      */
-    private void removeDiscordPunishmentExpired(String discordId, PunishmentTracker.PunishmentInfo info) {
-        Guild guild = getMainGuild();
-        if (guild == null)
-            return;
+    private CompletableFuture<?> removeServerMute(EnforcedGuild target, Member member, String logSuffix) {
+        if (target.isLazyVoiceMute() && !inVoice(member)) {
+            target.getPendingUnmute().add(member.getId());
+            return CompletableFuture.completedFuture(null);
+        }
 
-        guild.retrieveMemberById(discordId).queue(member -> {
-            // Remove muted role if configured
-            String roleId = plugin.getConfig().getString("muted-role-id", "0");
-            if (!roleId.equals("0") && !roleId.isEmpty()) {
-                Role mutedRole = guild.getRoleById(roleId);
-                if (mutedRole != null && member.getRoles().contains(mutedRole)) {
-                    guild.removeRoleFromMember(member, mutedRole).queue(
-                            success -> {
-                                // Send Discord channel log for expiry
-                                sendLogChannelMessage("punishment-expired", member, mutedRole, info.getMinecraftName(),
-                                        info.getType(), null, -1);
-                                if (plugin.isDebug()) {
-                                    plugin.getLogger().info(
-                                            "Removed muted role from " + member.getEffectiveName() + " (expired)");
-                                }
-                            },
-                            error -> plugin.getLogger().warning("Failed to remove muted role: " + error.getMessage()));
-                }
+        GuildVoiceState voiceState = member.getVoiceState();
+        if (voiceState != null && !voiceState.isGuildMuted()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return target.getRest().submit("unmute", member.mute(false)).whenComplete((success, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning(
+                        "Failed to remove server mute" + describe(target) + ": " + error.getMessage());
+            } else if (plugin.isDebug()) {
+                plugin.getLogger().info("Removed server mute from " + member.getEffectiveName() + logSuffix);
             }
+        });
+    }
 
-            // Remove server mute if configured
-            if (plugin.getConfig().getBoolean("apply-server-mute", true)) {
-                if (member.getVoiceState().isMuted()) {
-                    member.mute(false).queue(
-                            success -> {
-                                if (plugin.isDebug()) {
-                                    plugin.getLogger().info(
-                                            "Removed server mute from " + member.getEffectiveName() + " (expired)");
-                                }
-                            },
-                            error -> plugin.getLogger().warning("Failed to remove server mute: " + error.getMessage()));
-                }
+    private static boolean inVoice(Member member) {
+        GuildVoiceState voiceState = member.getVoiceState();
+        return voiceState != null && voiceState.inVoiceChannel();
+    }
+
+    /**
+     * Guild name for log lines, empty for the main guild
+     */
+    private static String describe(EnforcedGuild target) {
+        return target.isMain() ? "" : " in " + target.getName();
+    }
+
+    /**
+     * Time out a muted member for the rest of the punishment, capped at Discord's 28-day maximum
+     * (longer and permanent mutes are renewed by {@link #renewTimeouts()})
+     */
+    private CompletableFuture<?> applyTimeout(EnforcedGuild target, Member member, String discordId,
+            PunishmentTracker.PunishmentInfo info) {
+        long length = info.isPermanent() ? MAX_TIMEOUT_MILLIS : Math.min(info.getTimeRemaining(), MAX_TIMEOUT_MILLIS);
+        if (length <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return target.getRest().submit("timeout", member.timeoutFor(length, TimeUnit.MILLISECONDS))
+                .whenComplete((success, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().warning("Failed to apply timeout" + describe(target) + ": "
+                                + error.getMessage());
+                        return;
+                    }
+                    plugin.getPunishmentLogger().logDiscordAction(discordId, "Timeout Applied",
+                            "Timed out " + member.getEffectiveName() + describe(target) + " for "
+                                    + TimeUnit.MILLISECONDS.toMinutes(length) + " minute(s)");
+                    if (plugin.isDebug()) {
+                        plugin.getLogger().info("Applied timeout to " + member.getEffectiveName() + describe(target));
+                    }
+                });
+    }
+
+    /**
+     * Lift the timeout of a member
+     */
+    private CompletableFuture<?> removeTimeout(EnforcedGuild target, Member member, String logSuffix) {
+        if (!member.isTimedOut()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return target.getRest().submit("remove_timeout", member.removeTimeout()).whenComplete((success, error) -> {
+            if (error != null) {
+                plugin.getLogger().warning("Failed to remove timeout" + describe(target) + ": " + error.getMessage());
+            } else if (plugin.isDebug()) {
+                plugin.getLogger().info("Removed timeout from " + member.getEffectiveName() + logSuffix);
             }
-        }, error -> {
-            if (plugin.isDebug()) {
-                plugin.getLogger().info("User not in Discord server: " + discordId);
+        });
+    }
+
+    /**
+     * Extend timeouts that would end before the mute does (mutes longer than 28 days, or permanent)
+     */
+    public void renewTimeouts() {
+        List<EnforcedGuild> targets = new ArrayList<>();
+        List<Guild> connected = new ArrayList<>();
+        for (EnforcedGuild target : guilds) {
+            Guild guild = target.usesTimeouts() ? getGuild(target) : null;
+            if (guild != null) {
+                targets.add(target);
+                connected.add(guild);
+            }
+        }
+        if (targets.isEmpty())
+            return;
+
+        long renewBefore = System.currentTimeMillis() + TIMEOUT_RENEW_WINDOW;
+        // Streamed rather than copied, so a large punishment table is never held in memory
+        tracker.forEachPunishment((discordId, info) -> {
+            if (!"MUTE".equals(info.getType()) || info.isExpired()) {
+                return;
+            }
+
+            for (int i = 0; i < targets.size(); i++) {
+                EnforcedGuild target = targets.get(i);
+                CompletableFuture<Object> renewed = new CompletableFuture<>();
+                renewed.whenComplete((success, error) -> {
+                    // Tried again on the next run, well before the timeout runs out
+                    if (error != null && plugin.isDebug()) {
+                        plugin.getLogger().warning("Could not renew timeout of " + discordId + describe(target)
+                                + ": " + error.getMessage());
+                    }
+                });
+                target.getMembers().resolve(connected.get(i), discordId, failOnThrow(renewed, member -> {
+                    OffsetDateTime end = member.getTimeOutEnd();
+                    long endMillis = end != null ? end.toInstant().toEpochMilli() : 0;
+                    boolean outlasted = info.isPermanent() || info.getExpiryTime() > endMillis;
+                    if (endMillis < renewBefore && outlasted) {
+                        applyTimeout(target, member, discordId, info);
+                    }
+                }), () -> {
+                    // Not in the server: the timeout is applied again when they rejoin
+                }, renewed::completeExceptionally);
             }
         });
     }
 
+    /**
+     * Carry out an action from the outbox, checked against the user's punishment as stored now:
+     * an enforcement for a punishment that has since been lifted, or a lift for a user who has
+     * been punished again, has nothing left to do. Guilds where an earlier attempt succeeded
+     * are skipped.
+     *
+     * @param current The user's stored punishment, or null if they have none
+     * @return Each remaining guild's result by name (empty if there is nothing to do): completes once
+     *         the guild has accepted every call, or exceptionally if one failed
+     */
+    public Map<String, CompletableFuture<Void>> performOutboxAction(OutboxEntry entry,
+            PunishmentTracker.PunishmentInfo current) {
+        String discordId = entry.getDiscordId();
+        switch (entry.getAction()) {
+            case OutboxEntry.ENFORCE:
+                if (current == null || current.isExpired()) {
+                    return Map.of();
+                }
+                long duration = current.isPermanent() ? -1 : current.getExpiryTime() - current.getIssuedTime();
+                return applyDiscordPunishment(discordId, current, current.getMinecraftName(), current.getReason(),
+                        duration, entry.getDoneGuilds());
+            case OutboxEntry.LIFT:
+            case OutboxEntry.EXPIRE:
+                if (current != null) {
+                    return Map.of();
+                }
+                return removeDiscordPunishment(discordId, entry.getMinecraftName(), entry.getPunishmentType(),
+                        OutboxEntry.EXPIRE.equals(entry.getAction()), entry.getDoneGuilds());
+            default:
+                plugin.getLogger().warning("Unknown outbox action: " + entry.getAction());
+                return Map.of();
+        }
+    }
+
     /**
      * Listen for messages and delete/warn if user is punished
      */
@@ -314,15 +681,26 @@ public class DiscordManager extends ListenerAdapter {
             return;
         }
 
+        // Most authors are not punished: ruled out from memory without leaving JDA's thread
         String discordId = event.getAuthor().getId();
+        if (!tracker.mightBePunished(discordId)) {
+            discordEvents.labels("message", "filtered").inc();
+            return;
+        }
+        dispatch("message", () -> checkMessage(event, discordId));
+    }
+
+    private void checkMessage(MessageReceivedEvent event, String discordId) {
+        long checkStart = System.nanoTime();
         PunishmentTracker.PunishmentInfo punishment = tracker.getPunishment(discordId);
+        messageCheckLatency.observeNanos(System.nanoTime() - checkStart);
 
         if (punishment == null) {
             return; // Not punished
         }
 
         // Delete the message
-        event.getMessage().delete().queue(
+        rest.queue("delete_message", event.getMessage().delete(),
                 success -> {
                     if (plugin.isDebug()) {
                         plugin.getLogger().info("Deleted message from punished user: " + event.getAuthor().getAsTag());
@@ -341,21 +719,99 @@ public class DiscordManager extends ListenerAdapter {
      */
     @Override
     public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+        EnforcedGuild target = findGuild(event.getGuild());
+        if (target == null) {
+            return;
+        }
+
         String discordId = event.getUser().getId();
+        target.getMembers().invalidate(discordId);
+        if (!tracker.mightBePunished(discordId)) {
+            discordEvents.labels("member_join", "filtered").inc();
+            return;
+        }
+        dispatch("member_join", () -> checkMemberJoin(event, target, discordId));
+    }
+
+    private void checkMemberJoin(GuildMemberJoinEvent event, EnforcedGuild target, String discordId) {
         PunishmentTracker.PunishmentInfo punishment = tracker.getPunishment(discordId);
 
         if (punishment != null) {
             if (plugin.isDebug()) {
-                plugin.getLogger().info(
-                        "Punished user rejoined Discord: " + event.getUser().getAsTag() + " - Reapplying punishment");
+                plugin.getLogger().info("Punished user rejoined Discord" + describe(target) + ": "
+                        + event.getUser().getAsTag() + " - Reapplying punishment");
             }
 
-            // Reapply punishment (without logging to channel since it's a rejoin)
-            applyDiscordPunishment(discordId, punishment, punishment.getMinecraftName(),
+            // Reapply punishment in the guild they joined
+            applyInGuild(target, discordId, punishment, punishment.getMinecraftName(),
                     punishment.getReason(), -1);
         }
     }
 
+    /**
+     * Enforce (or lift) the server mute when a member joins a voice channel (lazy voice mute mode)
+     */
+    @Override
+    public void onGuildVoiceJoin(GuildVoiceJoinEvent event) {
+        onVoiceChannelEntered(event.getGuild(), event.getMember());
+    }
+
+    /**
+     * Enforce (or lift) the server mute when a member moves between voice channels (lazy voice mute mode)
+     */
+    @Override
+    public void onGuildVoiceMove(GuildVoiceMoveEvent event) {
+        onVoiceChannelEntered(event.getGuild(), event.getMember());
+    }
+
+    private void onVoiceChannelEntered(Guild guild, Member member) {
+        EnforcedGuild target = findGuild(guild);
+        if (target == null || !target.isLazyVoiceMute() || !target.appliesServerMute()) {
+            return;
+        }
+
+        String discordId = member.getId();
+        if (!tracker.mightBePunished(discordId)) {
+            discordEvents.labels("voice_join", "filtered").inc();
+            liftPendingUnmute(target, member);
+            return;
+        }
+        dispatch("voice_join", () -> {
+            if (tracker.getPunishment(discordId) != null) {
+                applyServerMute(target, member, discordId);
+            } else {
+                liftPendingUnmute(target, member);
+            }
+        });
+    }
+
+    private void liftPendingUnmute(EnforcedGuild target, Member member) {
+        GuildVoiceState voiceState = member.getVoiceState();
+        if (target.getPendingUnmute().remove(member.getId()) && (voiceState == null || voiceState.isGuildMuted())) {
+            removeServerMute(target, member, describe(target) + " (joined voice)");
+        }
+    }
+
+    /**
+     * Hand an event that needs a tracker lookup (which may query the database) to the plugin's
+     * bounded event pool, keeping JDA's event thread free for DiscordSRV's chat relay. When the
+     * pool is saturated the check is skipped instead of holding up the event thread.
+     */
+    private void dispatch(String event, Runnable check) {
+        if (plugin.getScheduler().tryRunEvent(check)) {
+            discordEvents.labels(event, "queued").inc();
+            return;
+        }
+
+        discordEvents.labels(event, "dropped").inc();
+        long now = System.currentTimeMillis();
+        long last = lastDropWarning.get();
+        if (now - last > TimeUnit.MINUTES.toMillis(1) && lastDropWarning.compareAndSet(last, now)) {
+            plugin.getLogger().warning("Discord event queue is full, skipping punishment checks "
+                    + "(raise scheduler.event-queue-size if this persists)");
+        }
+    }
+
     /**
      * Send an ephemeral warning message to the user
      */
@@ -379,17 +835,16 @@ public class DiscordManager extends ListenerAdapter {
 
         // Send as a reply that mentions the user (since we can't do true ephemeral in
         // regular channels)
-        event.getChannel().sendMessage(event.getAuthor().getAsMention() + " " + message)
-                .queue(
-                        sentMessage -> {
-                            // Auto-delete after 10 seconds
-                            sentMessage.delete().queueAfter(10, java.util.concurrent.TimeUnit.SECONDS,
-                                    null,
-                                    error -> {
-                                    } // Ignore errors on auto-delete
-                            );
-                        },
-                        error -> plugin.getLogger().warning("Failed to send warning message: " + error.getMessage()));
+        rest.queue("send_warning", event.getChannel().sendMessage(event.getAuthor().getAsMention() + " " + message),
+                sentMessage -> {
+                    // Auto-delete after 10 seconds
+                    sentMessage.delete().queueAfter(10, java.util.concurrent.TimeUnit.SECONDS,
+                            null,
+                            error -> {
+                            } // Ignore errors on auto-delete
+                    );
+                },
+                error -> plugin.getLogger().warning("Failed to send warning message: " + error.getMessage()));
     }
 
     /**
@@ -427,57 +882,34 @@ public class DiscordManager extends ListenerAdapter {
             return;
         }
 
-        DiscordSRV.getPlugin().getJda().retrieveUserById(discordId).queue(user -> {
-            String messageKey = type.toLowerCase();
+        String messageKey = type.toLowerCase();
 
-            // Get message from config (could be String or List)
-            String messageTemplate;
-            if (plugin.getConfig().isList("notification-messages." + messageKey)) {
-                messageTemplate = String.join("\n",
-                        plugin.getConfig().getStringList("notification-messages." + messageKey));
-            } else {
-                messageTemplate = plugin.getConfig().getString("notification-messages." + messageKey,
-                        "You have received a punishment on the Minecraft server.");
-            }
+        // Get message from config (could be String or List)
+        String messageTemplate;
+        if (plugin.getConfig().isList("notification-messages." + messageKey)) {
+            messageTemplate = String.join("\n",
+                    plugin.getConfig().getStringList("notification-messages." + messageKey));
+        } else {
+            messageTemplate = plugin.getConfig().getString("notification-messages." + messageKey,
+                    "You have received a punishment on the Minecraft server.");
+        }
 
-            // Replace placeholders
-            String finalMessage = messageTemplate
-                    .replace("{reason}", reason != null ? reason : "No reason provided")
-                    .replace("{player}", minecraftName);
+        // Replace placeholders
+        String finalMessage = messageTemplate
+                .replace("{reason}", reason != null ? reason : "No reason provided")
+                .replace("{player}", minecraftName);
 
-            if (expiryTime != -1) {
-                long remaining = expiryTime - System.currentTimeMillis();
-                finalMessage = finalMessage.replace("{time}", formatTime(remaining));
-            } else {
-                finalMessage = finalMessage.replace("{time}", type.equals("WARN") ? "" : "Permanent");
-            }
-
-            String messageToSend = finalMessage;
-
-            user.openPrivateChannel().queue(channel -> {
-                channel.sendMessage(messageToSend).queue(
-                        success -> {
-                            if (plugin.isDebug()) {
-                                plugin.getLogger().info("Sent " + type + " notification DM to " + user.getAsTag());
-                            }
-                        },
-                        error -> {
-                            if (plugin.isDebug()) {
-                                plugin.getLogger()
-                                        .warning("Failed to send DM to " + user.getAsTag() + ": " + error.getMessage());
-                            }
-                        });
-            }, error -> {
-                if (plugin.isDebug()) {
-                    plugin.getLogger()
-                            .warning("Failed to open DM channel with " + discordId + ": " + error.getMessage());
-                }
-            });
-        }, error -> {
-            if (plugin.isDebug()) {
-                plugin.getLogger().warning("Failed to retrieve user " + discordId + ": " + error.getMessage());
-            }
-        });
+        if (expiryTime != -1) {
+            long remaining = expiryTime - System.currentTimeMillis();
+            finalMessage = finalMessage.replace("{time}", formatTime(remaining));
+        } else {
+            finalMessage = finalMessage.replace("{time}", type.equals("WARN") ? "" : "Permanent");
+        }
+
+        if (plugin.isDebug()) {
+            plugin.getLogger().info("Queued " + type + " notification DM for " + discordId);
+        }
+        messenger.send(discordId, finalMessage);
     }
 
     /**
@@ -562,7 +994,7 @@ public class DiscordManager extends ListenerAdapter {
         }
 
         // Send the message
-        channel.sendMessage(message).queue(
+        rest.queue("send_log", channel.sendMessage(message),
                 success -> {
                     if (plugin.isDebug()) {
                         plugin.getLogger().info("Sent log message to Discord channel");
@@ -586,7 +1018,7 @@ public class DiscordManager extends ListenerAdapter {
         }
 
         // Check for active punishments in LiteBans
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getScheduler().runAsync(() -> {
             PunishmentInfo activePunishment = checkLiteBansForActivePunishment(minecraftUuid);
 
             if (activePunishment != null) {
@@ -596,38 +1028,65 @@ public class DiscordManager extends ListenerAdapter {
                             .info("Found active " + activePunishment.type + " for newly linked account: " + playerName);
                 }
 
-                // Calculate expiry time
-                long expiryTime = activePunishment.expiryTimestamp == 0 ? -1 : activePunishment.expiryTimestamp;
-                long duration = activePunishment.expiryTimestamp == 0 ? -1
-                        : (activePunishment.expiryTimestamp - System.currentTimeMillis());
+                applyRetroactivePunishment(discordId, minecraftUuid, playerName, activePunishment.type,
+                        activePunishment.reason, activePunishment.expiryTimestamp, true, "after account link");
+            } else if (plugin.isDebug()) {
+                plugin.getLogger().info("No active punishments found for newly linked account: " + playerName);
+            }
+        });
+    }
+
+    /**
+     * Track and enforce a punishment that already exists in LiteBans
+     * (account linked later, or found by a backfill)
+     *
+     * @param expiryTimestamp LiteBans end date, 0 for permanent
+     * @param notify          Whether to DM the user about the punishment
+     * @param source          Short description for the log, e.g. "after account link"
+     * @return true if the punishment was applied, false if it was already tracked
+     */
+    public boolean applyRetroactivePunishment(String discordId, UUID minecraftUuid, String playerName, String type,
+            String reason, long expiryTimestamp, boolean notify, String source) {
+        // Calculate expiry time
+        long expiryTime = expiryTimestamp == 0 ? -1 : expiryTimestamp;
+        long duration = expiryTimestamp == 0 ? -1 : (expiryTimestamp - System.currentTimeMillis());
+
+        if (isAlreadyTracked(discordId, type, expiryTime)) {
+            return false;
+        }
 
-                // Add to tracker
-                PunishmentTracker.PunishmentInfo info = new PunishmentTracker.PunishmentInfo(
-                        minecraftUuid, playerName, activePunishment.type, activePunishment.reason, expiryTime);
-                tracker.addPunishment(discordId, info);
+        // Add to tracker (which queues the Discord enforcement in the outbox)
+        PunishmentTracker.PunishmentInfo info = new PunishmentTracker.PunishmentInfo(
+                minecraftUuid, playerName, type, reason, expiryTime);
+        WriteResult stored = tracker.addPunishment(discordId, info);
+        if (stored.isConflict()) {
+            // Another server stored the same or a newer punishment first
+            return false;
+        }
 
-                // Log retroactive application
-                plugin.getPunishmentLogger().logPunishment(playerName, minecraftUuid.toString(), discordId,
-                        activePunishment.type, activePunishment.reason, duration);
-                plugin.getPunishmentLogger().logDiscordAction(discordId, "Retroactive Punishment",
-                        "Applied existing " + activePunishment.type + " from LiteBans after account link");
+        // Log retroactive application
+        plugin.getPunishmentLogger().logPunishment(playerName, minecraftUuid.toString(), discordId,
+                type, reason, duration);
+        plugin.getPunishmentLogger().logDiscordAction(discordId, "Retroactive Punishment",
+                "Applied existing " + type + " from LiteBans " + source);
 
-                if (plugin.isDebug()) {
-                    plugin.getLogger().info("Applied retroactive punishment for " + playerName);
-                }
+        if (plugin.isDebug()) {
+            plugin.getLogger().info("Applied retroactive punishment for " + playerName);
+        }
 
-                // Send DM notification
-                sendPunishmentNotification(discordId, activePunishment.type, activePunishment.reason, expiryTime,
-                        playerName);
+        // Send DM notification
+        if (notify) {
+            sendPunishmentNotification(discordId, type, reason, expiryTime, playerName);
+        }
 
-                // Apply Discord enforcement on main thread
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    applyDiscordPunishment(discordId, info, playerName, activePunishment.reason, duration);
-                });
-            } else if (plugin.isDebug()) {
-                plugin.getLogger().info("No active punishments found for newly linked account: " + playerName);
-            }
-        });
+        // Apply Discord enforcement: through the outbox, or right away if the database is unavailable
+        // (only queues JDA actions, no main thread needed)
+        if (stored.isWritten()) {
+            plugin.getOutbox().wake();
+        } else {
+            applyDiscordPunishment(discordId, info, playerName, reason, duration, Set.of());
+        }
+        return true;
     }
 
     /**
@@ -672,6 +1131,42 @@ public class DiscordManager extends ListenerAdapter {
         }
     }
 
+    /**
+     * Check whether DiscordSRV is connected to its main guild
+     */
+    public boolean isReady() {
+        DiscordSRV discordSRV = DiscordSRV.getPlugin();
+        return discordSRV != null && discordSRV.getMainGuild() != null;
+    }
+
+    /**
+     * Find the enforced guild an event came from
+     *
+     * @return The guild's settings, or null if punishments are not enforced there
+     */
+    private EnforcedGuild findGuild(Guild guild) {
+        for (EnforcedGuild target : guilds) {
+            if (target.matches(guild)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the connected guild of an enforced guild
+     */
+    private Guild getGuild(EnforcedGuild target) {
+        if (target.isMain()) {
+            return getMainGuild();
+        }
+        Guild guild = target.getGuild();
+        if (guild == null) {
+            plugin.getLogger().warning("Guild " + target.getName() + " not found! Is the bot a member of it?");
+        }
+        return guild;
+    }
+
     /**
      * Get the main Discord guild
      */
@@ -0,0 +1,219 @@
+package FoundryNorth.litebansDiscordLink.discord;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.DatabaseManager;
+import FoundryNorth.litebansDiscordLink.database.OutboxEntry;
+import FoundryNorth.litebansDiscordLink.database.PunishmentTracker;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import github.scarsz.discordsrv.dependencies.jda.api.exceptions.ErrorResponseException;
+import github.scarsz.discordsrv.dependencies.jda.api.requests.ErrorResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Carries out the Discord actions recorded in the outbox.
+ * Due actions are claimed in batches and checked against the stored punishments before running.
+ * Failed actions are retried with exponential backoff and jitter until they succeed or run out
+ * of attempts, so a Discord outage or reconnect delays enforcement instead of losing it. Each
+ * guild's outcome is recorded, so a retry only goes to the guilds where the action failed.
+ */
+public class DiscordOutbox {
+
+    private final LitebansDiscordLink plugin;
+    private final DatabaseManager database;
+    private final DiscordManager discordManager;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long leaseMillis;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Counter actions;
+    private volatile boolean rerun;
+
+    public DiscordOutbox(LitebansDiscordLink plugin, DatabaseManager database, DiscordManager discordManager) {
+        this.plugin = plugin;
+        this.database = database;
+        this.discordManager = discordManager;
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("outbox.batch-size", 50));
+        this.maxAttempts = Math.max(1, plugin.getConfig().getInt("outbox.max-attempts", 10));
+        this.baseDelay = TimeUnit.SECONDS.toMillis(Math.max(1, plugin.getConfig().getLong("outbox.base-delay", 2)));
+        this.maxDelay = Math.max(baseDelay,
+                TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("outbox.max-delay", 300)));
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(60);
+        this.actions = plugin.getMetrics().counter("ldl_outbox_actions_total",
+                "Outbox Discord actions by outcome", "result");
+    }
+
+    /**
+     * Drain the outbox periodically, picking up retries and actions recorded by other servers
+     */
+    public void start() {
+        long interval = Math.max(1, plugin.getConfig().getLong("outbox.poll-interval", 5));
+        plugin.getScheduler().runAsyncTimer(this::drain, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Drain the outbox now, after a punishment change was recorded
+     */
+    public void wake() {
+        plugin.getScheduler().runAsync(this::drain);
+    }
+
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            rerun = true; // The running drain goes round again
+            return;
+        }
+
+        try {
+            boolean more;
+            do {
+                rerun = false;
+                // Leave actions in the outbox (and their attempts unspent) until Discord is connected
+                if (!discordManager.isReady()) {
+                    return;
+                }
+                List<OutboxEntry> batch = database.claimOutbox(batchSize, leaseMillis);
+                if (!batch.isEmpty()) {
+                    process(batch);
+                }
+                more = batch.size() == batchSize || rerun;
+            } while (more && plugin.isEnabled());
+        } finally {
+            draining.set(false);
+        }
+
+        // A wake between the last check and releasing the flag
+        if (rerun) {
+            wake();
+        }
+    }
+
+    private void process(List<OutboxEntry> batch) {
+        Set<String> discordIds = new HashSet<>();
+        for (OutboxEntry entry : batch) {
+            discordIds.add(entry.getDiscordId());
+        }
+
+        // Actions are checked against what is stored now, so stale ones are dropped
+        Map<String, PunishmentTracker.PunishmentInfo> current = database.getPunishments(discordIds);
+        if (current == null) {
+            return; // Database unavailable: the leases run out and the batch is claimed again
+        }
+
+        Map<OutboxEntry, Map<String, CompletableFuture<Void>>> running = new LinkedHashMap<>();
+        Map<OutboxEntry, String> rejected = new HashMap<>();
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+        for (OutboxEntry entry : batch) {
+            try {
+                Map<String, CompletableFuture<Void>> results =
+                        discordManager.performOutboxAction(entry, current.get(entry.getDiscordId()));
+                running.put(entry, results);
+                all.addAll(results.values());
+            } catch (RuntimeException e) {
+                running.put(entry, Map.of());
+                rejected.put(entry, String.valueOf(e.getMessage()));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(all.toArray(new CompletableFuture[0]))
+                    .get(leaseMillis / 2, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Outcomes are checked one by one below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Long> finished = new ArrayList<>();
+        Map<Long, Long> retries = new HashMap<>();
+        Map<Long, String> errors = new HashMap<>();
+        Map<Long, Set<String>> doneGuilds = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<OutboxEntry, Map<String, CompletableFuture<Void>>> action : running.entrySet()) {
+            OutboxEntry entry = action.getKey();
+            Set<String> done = new TreeSet<>(entry.getDoneGuilds());
+            String error = rejected.get(entry); // The first failure, prefixed with its guild
+            for (Map.Entry<String, CompletableFuture<Void>> guild : action.getValue().entrySet()) {
+                Throwable guildError = failure(guild.getValue());
+                if (guildError == null || isMemberGone(guildError)) {
+                    done.add(guild.getKey());
+                } else if (error == null) {
+                    error = guild.getKey() + ": " + guildError.getMessage();
+                }
+            }
+
+            if (error == null) {
+                actions.labels("done").inc();
+                finished.add(entry.getId());
+            } else if (entry.getAttempts() >= maxAttempts) {
+                actions.labels("abandoned").inc();
+                finished.add(entry.getId());
+                plugin.getLogger().warning("Giving up on Discord " + entry.getAction().toLowerCase() + " for "
+                        + entry.getDiscordId() + " after " + entry.getAttempts() + " attempts: " + error);
+            } else {
+                actions.labels("retried").inc();
+                retries.put(entry.getId(), now + backoff(entry.getAttempts(), baseDelay, maxDelay));
+                errors.put(entry.getId(), error);
+                doneGuilds.put(entry.getId(), done);
+                if (plugin.isDebug()) {
+                    plugin.getLogger().info("Discord " + entry.getAction().toLowerCase() + " for "
+                            + entry.getDiscordId() + " failed (attempt " + entry.getAttempts() + "), retrying: "
+                            + error);
+                }
+            }
+        }
+
+        database.completeOutbox(finished);
+        database.retryOutbox(retries, errors, doneGuilds);
+    }
+
+    /**
+     * Exponential backoff with jitter: half the delay is fixed so retries stay spaced out,
+     * the other half is random so retries after an outage do not arrive together
+     */
+    static long backoff(int attempts, long baseDelay, long maxDelay) {
+        long delay = Math.min(maxDelay, baseDelay << Math.min(Math.max(attempts, 1) - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * @return The error an action failed with, or null if it succeeded
+     */
+    private static Throwable failure(CompletableFuture<Void> result) {
+        if (!result.isDone()) {
+            return new TimeoutException("Discord did not respond in time");
+        }
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * The member left between being resolved and the call: rejoining reapplies the punishment
+     */
+    private static boolean isMemberGone(Throwable error) {
+        return error instanceof ErrorResponseException
+                && ((ErrorResponseException) error).getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER;
+    }
+}
@@ -0,0 +1,216 @@
+package FoundryNorth.litebansDiscordLink.discord;
+
+import FoundryNorth.litebansDiscordLink.jfr.DiscordActionEvent;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import FoundryNorth.litebansDiscordLink.metrics.Histogram;
+import FoundryNorth.litebansDiscordLink.metrics.MetricsRegistry;
+import github.scarsz.discordsrv.dependencies.jda.api.requests.RestAction;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Issues JDA REST actions and records call counts, failures and latency per kind.
+ * JDA waits out 429 responses itself and retries, so rate limiting shows up as latency
+ * rather than as failures.
+ * A guild lane ({@link #forGuild}) caps how many requests one guild has in flight and
+ * accounts for them separately, so a guild that is being rate limited queues its own
+ * requests instead of crowding out the others.
+ */
+public class DiscordRest {
+
+    private final DiscordRest root;
+    private final Counter calls;
+    private final Counter failures;
+    private final Histogram latency;
+    private final Counter guildRequests;
+    private final Object idle = new Object();
+    private int inFlight;
+
+    // Guild lane only
+    private final String guild;
+    private final int maxInFlight;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int laneInFlight;
+
+    public DiscordRest(MetricsRegistry metrics) {
+        this.root = this;
+        this.calls = metrics.counter("ldl_discord_rest_calls_total", "Discord REST calls issued", "kind");
+        this.failures = metrics.counter("ldl_discord_rest_failures_total", "Discord REST calls that failed", "kind");
+        this.latency = metrics.histogram("ldl_discord_rest_seconds",
+                "Discord REST call latency including rate-limit queueing", Histogram.LATENCY_BUCKETS, "kind");
+        this.guildRequests = metrics.counter("ldl_discord_guild_requests_total",
+                "Discord REST calls per enforced guild by outcome", "guild", "result");
+        this.guild = null;
+        this.maxInFlight = 0;
+    }
+
+    private DiscordRest(DiscordRest root, String guild, int maxInFlight) {
+        this.root = root;
+        this.calls = root.calls;
+        this.failures = root.failures;
+        this.latency = root.latency;
+        this.guildRequests = root.guildRequests;
+        this.guild = guild;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Create a lane for one guild's requests, sharing this instance's metrics and shutdown accounting
+     *
+     * @param guild       Guild name for the per-guild metrics
+     * @param maxInFlight Requests the guild may have waiting on Discord at once; the rest queue in order
+     */
+    public DiscordRest forGuild(String guild, int maxInFlight) {
+        return new DiscordRest(root, guild, maxInFlight);
+    }
+
+    /**
+     * Queue a REST action, recording it under the given kind
+     *
+     * @param kind    Short name of the call, e.g. "add_role"
+     * @param action  The action to queue
+     * @param success Success callback (may be null)
+     * @param failure Failure callback (may be null)
+     */
+    public <T> void queue(String kind, RestAction<T> action, Consumer<? super T> success,
+            Consumer<? super Throwable> failure) {
+        // Counted from here, so requests waiting for a lane slot also hold up shutdown
+        synchronized (root.idle) {
+            root.inFlight++;
+        }
+
+        if (guild != null) {
+            synchronized (waiting) {
+                if (laneInFlight >= maxInFlight) {
+                    guildRequests.labels(guild, "queued").inc();
+                    waiting.add(() -> send(kind, action, success, failure));
+                    return;
+                }
+                laneInFlight++;
+            }
+        }
+        send(kind, action, success, failure);
+    }
+
+    private <T> void send(String kind, RestAction<T> action, Consumer<? super T> success,
+            Consumer<? super Throwable> failure) {
+        calls.labels(kind).inc();
+        long start = System.nanoTime();
+        DiscordActionEvent event = new DiscordActionEvent();
+        event.begin();
+        try {
+            action.queue(result -> {
+                latency.labels(kind).observeSince(start);
+                commit(event, kind, null);
+                if (guild != null) {
+                    guildRequests.labels(guild, "success").inc();
+                }
+                try {
+                    if (success != null) {
+                        success.accept(result);
+                    }
+                } finally {
+                    finished();
+                }
+            }, error -> {
+                latency.labels(kind).observeSince(start);
+                failed(kind, event, error);
+                try {
+                    if (failure != null) {
+                        failure.accept(error);
+                    }
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected before it was queued, so no callback will release the slot
+            failed(kind, event, e);
+            finished();
+            if (failure != null) {
+                failure.accept(e);
+            }
+        }
+    }
+
+    private void failed(String kind, DiscordActionEvent event, Throwable error) {
+        failures.labels(kind).inc();
+        commit(event, kind, error);
+        if (guild != null) {
+            guildRequests.labels(guild, "failure").inc();
+        }
+    }
+
+    /**
+     * Queue a REST action, recording it under the given kind
+     *
+     * @return Completes with the result, or exceptionally with the error
+     */
+    public <T> CompletableFuture<T> submit(String kind, RestAction<T> action) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        queue(kind, action, future::complete, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Wait until no queued request is waiting on Discord
+     *
+     * @return false if requests were still in flight at the timeout
+     */
+    public boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (root.idle) {
+            while (root.inFlight > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    root.idle.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Hand the lane slot to the next waiting request, then release the shutdown count
+     */
+    private void finished() {
+        if (guild != null) {
+            Runnable next;
+            synchronized (waiting) {
+                next = waiting.poll();
+                if (next == null) {
+                    laneInFlight--;
+                }
+            }
+            if (next != null) {
+                next.run();
+            }
+        }
+
+        synchronized (root.idle) {
+            if (--root.inFlight == 0) {
+                root.idle.notifyAll();
+            }
+        }
+    }
+
+    private void commit(DiscordActionEvent event, String kind, Throwable error) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.success = error == null;
+            event.error = error != null ? error.getMessage() : null;
+            event.commit();
+        }
+    }
+}
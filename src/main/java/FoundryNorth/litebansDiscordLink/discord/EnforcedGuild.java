@@ -0,0 +1,173 @@
+package FoundryNorth.litebansDiscordLink.discord;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import github.scarsz.discordsrv.DiscordSRV;
+import github.scarsz.discordsrv.dependencies.jda.api.JDA;
+import github.scarsz.discordsrv.dependencies.jda.api.entities.Guild;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A guild punishments are enforced in, with its own muted role and enforcement options.
+ * Each guild resolves its own members and sends its requests through its own lane, so a
+ * busy or rate-limited guild does not hold up enforcement in the others.
+ */
+public class EnforcedGuild {
+
+    private final String name;
+    private final String guildId; // null for DiscordSRV's main guild
+    private final String mutedRoleId;
+    private final boolean serverMute;
+    private final boolean lazyVoiceMute;
+    private final boolean timeoutMutes;
+    private final DiscordRest rest;
+    private final MemberResolver members;
+    private final Set<String> pendingUnmute = ConcurrentHashMap.newKeySet();
+
+    private EnforcedGuild(LitebansDiscordLink plugin, DiscordRest rest, String name, String guildId,
+            ConfigurationSection options, ConfigurationSection defaults) {
+        this.name = name;
+        this.guildId = guildId;
+        this.mutedRoleId = options.getString("muted-role-id", defaults.getString("muted-role-id", "0"));
+        this.serverMute = options.getBoolean("apply-server-mute", defaults.getBoolean("apply-server-mute", true));
+        this.lazyVoiceMute = options.getString("server-mute-mode", defaults.getString("server-mute-mode", "eager"))
+                .equalsIgnoreCase("on-voice-join");
+        this.timeoutMutes = options.getString("mute-enforcement",
+                defaults.getString("mute-enforcement", "message-delete")).equalsIgnoreCase("timeout");
+        this.rest = rest.forGuild(name, defaults.getInt("guild-max-concurrent-requests", 10));
+        this.members = new MemberResolver(plugin, this.rest);
+    }
+
+    /**
+     * Load DiscordSRV's main guild (configured by the top-level options) followed by every
+     * guild under {@code guilds}, whose options default to the top-level ones
+     */
+    public static List<EnforcedGuild> load(LitebansDiscordLink plugin, DiscordRest rest) {
+        ConfigurationSection config = plugin.getConfig();
+        List<EnforcedGuild> guilds = new ArrayList<>();
+        guilds.add(new EnforcedGuild(plugin, rest, "main", null, config, config));
+
+        ConfigurationSection section = config.getConfigurationSection("guilds");
+        if (section == null) {
+            return guilds;
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection options = section.getConfigurationSection(name);
+            String guildId = options != null ? options.getString("guild-id", "") : "";
+            if (guildId.isEmpty() || guildId.equals("0")) {
+                plugin.getLogger().warning("Guild '" + name + "' has no guild-id, skipping it");
+                continue;
+            }
+            if (!seen.add(guildId)) {
+                plugin.getLogger().warning("Guild " + guildId + " is listed more than once, skipping '" + name + "'");
+                continue;
+            }
+            guilds.add(new EnforcedGuild(plugin, rest, name, guildId, options, config));
+        }
+        return withoutMainGuild(plugin, guilds);
+    }
+
+    /**
+     * Drop entries under {@code guilds} that repeat DiscordSRV's main guild, which is already
+     * enforced by the top-level options. The main guild is only known once DiscordSRV has
+     * connected, so this is checked again then.
+     *
+     * @return The guilds without the repeats, or the same list if there are none or the main guild is not known yet
+     */
+    public static List<EnforcedGuild> withoutMainGuild(LitebansDiscordLink plugin, List<EnforcedGuild> guilds) {
+        DiscordSRV discordSRV = DiscordSRV.getPlugin();
+        Guild main = discordSRV != null ? discordSRV.getMainGuild() : null;
+        if (main == null) {
+            return guilds;
+        }
+
+        List<EnforcedGuild> kept = new ArrayList<>(guilds.size());
+        for (EnforcedGuild target : guilds) {
+            if (!target.isMain() && target.guildId.equals(main.getId())) {
+                plugin.getLogger().warning("Guild '" + target.name + "' is DiscordSRV's main guild, which is "
+                        + "already enforced by the top-level options, skipping it");
+                continue;
+            }
+            kept.add(target);
+        }
+        return kept.size() == guilds.size() ? guilds : kept;
+    }
+
+    /**
+     * Get the connected guild
+     *
+     * @return The guild, or null if DiscordSRV is not connected or the bot is not in it
+     */
+    public Guild getGuild() {
+        DiscordSRV discordSRV = DiscordSRV.getPlugin();
+        if (discordSRV == null) {
+            return null;
+        }
+        if (guildId == null) {
+            return discordSRV.getMainGuild();
+        }
+        JDA jda = discordSRV.getJda();
+        return jda != null ? jda.getGuildById(guildId) : null;
+    }
+
+    /**
+     * Check whether a guild is this one
+     */
+    public boolean matches(Guild guild) {
+        Guild connected = getGuild();
+        return connected != null && connected.getIdLong() == guild.getIdLong();
+    }
+
+    public boolean isMain() {
+        return guildId == null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The muted role ID, or null if the guild has no muted role
+     */
+    public String getMutedRoleId() {
+        return mutedRoleId == null || mutedRoleId.isEmpty() || mutedRoleId.equals("0") ? null : mutedRoleId;
+    }
+
+    public boolean appliesServerMute() {
+        return serverMute;
+    }
+
+    public boolean isLazyVoiceMute() {
+        return lazyVoiceMute;
+    }
+
+    public boolean usesTimeouts() {
+        return timeoutMutes;
+    }
+
+    public boolean usesTimeout(String type) {
+        return timeoutMutes && "MUTE".equals(type);
+    }
+
+    public DiscordRest getRest() {
+        return rest;
+    }
+
+    public MemberResolver getMembers() {
+        return members;
+    }
+
+    /**
+     * Members whose unmute waits for their next voice join (lazy voice mute mode)
+     */
+    public Set<String> getPendingUnmute() {
+        return pendingUnmute;
+    }
+}
@@ -0,0 +1,202 @@
+package FoundryNorth.litebansDiscordLink.discord;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import github.scarsz.discordsrv.dependencies.jda.api.entities.Guild;
+import github.scarsz.discordsrv.dependencies.jda.api.entities.Member;
+import github.scarsz.discordsrv.dependencies.jda.api.exceptions.ErrorResponseException;
+import github.scarsz.discordsrv.dependencies.jda.api.requests.ErrorResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Resolves Discord IDs to guild members for enforcement.
+ * Members are served from JDA's cache when possible; misses within a short window are
+ * coalesced into chunked retrieveMembersByIds gateway requests, and IDs that are not in the
+ * guild are remembered for a short time so repeated actions on them cost nothing.
+ */
+public class MemberResolver {
+
+    private static final int CHUNK_SIZE = 100; // Discord's limit per member chunk request
+    private static final long COALESCE_MILLIS = 50;
+
+    private final LitebansDiscordLink plugin;
+    private final DiscordRest rest;
+    private final long notInGuildTtl;
+    private final Map<String, Long> notInGuild = new ConcurrentHashMap<>();
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private final Counter resolutions;
+    private Guild pendingGuild;
+
+    public MemberResolver(LitebansDiscordLink plugin, DiscordRest rest) {
+        this.plugin = plugin;
+        this.rest = rest;
+        this.notInGuildTtl = TimeUnit.SECONDS.toMillis(plugin.getConfig().getLong("not-in-guild-ttl", 300));
+        this.resolutions = plugin.getMetrics().counter("ldl_member_resolutions_total",
+                "Guild member lookups by how they were answered", "result");
+    }
+
+    /**
+     * Resolve a member of the guild
+     *
+     * @param found   Called with the member if they are in the guild
+     * @param missing Called if they are not in the guild
+     * @param failed  Called if Discord could not answer (server error, timeout), so the caller can retry
+     */
+    public void resolve(Guild guild, String discordId, Consumer<Member> found, Runnable missing,
+            Consumer<Throwable> failed) {
+        Long until = notInGuild.get(discordId);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                resolutions.labels("not_in_guild_cached").inc();
+                missing.run();
+                return;
+            }
+            notInGuild.remove(discordId, until);
+        }
+
+        Member cached = guild.getMemberById(discordId);
+        if (cached != null) {
+            resolutions.labels("cache").inc();
+            found.accept(cached);
+            return;
+        }
+
+        boolean schedule;
+        synchronized (pending) {
+            // A different guild (DiscordSRV reconnect) flushes what is queued for the old one first
+            if (pendingGuild != null && pendingGuild.getIdLong() != guild.getIdLong()) {
+                flush();
+            }
+            schedule = pending.isEmpty();
+            pendingGuild = guild;
+            pending.computeIfAbsent(discordId, id -> new Pending()).add(found, missing, failed);
+        }
+        if (schedule) {
+            plugin.getScheduler().runAsyncLater(this::flush, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Forget that a user is not in the guild (e.g. they just joined)
+     */
+    public void invalidate(String discordId) {
+        notInGuild.remove(discordId);
+    }
+
+    /**
+     * Retrieve every queued ID in chunked gateway requests
+     */
+    private void flush() {
+        Guild guild;
+        Map<String, Pending> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            guild = pendingGuild;
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            pendingGuild = null;
+        }
+
+        List<String> ids = new ArrayList<>(batch.keySet());
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+            Map<String, Pending> chunkWaiters = new HashMap<>();
+            for (String id : chunk) {
+                chunkWaiters.put(id, batch.get(id));
+            }
+
+            guild.retrieveMembersByIds(chunk.toArray(new String[0]))
+                    .onSuccess(members -> complete(chunkWaiters, members))
+                    .onError(error -> {
+                        // Chunk requests need the members intent; fall back to one REST call per ID
+                        if (plugin.isDebug()) {
+                            plugin.getLogger().warning("Member chunk request failed: " + error.getMessage());
+                        }
+                        chunkWaiters.forEach((id, waiters) -> retrieveSingle(guild, id, waiters));
+                    });
+        }
+    }
+
+    private void complete(Map<String, Pending> waiters, List<Member> members) {
+        for (Member member : members) {
+            Pending pendingMember = waiters.remove(member.getId());
+            if (pendingMember != null) {
+                resolutions.labels("fetched").inc();
+                pendingMember.found(member);
+            }
+        }
+
+        // Anything not returned is not in the guild
+        for (Map.Entry<String, Pending> entry : waiters.entrySet()) {
+            notInGuild(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void retrieveSingle(Guild guild, String discordId, Pending waiters) {
+        rest.queue("retrieve_member", guild.retrieveMemberById(discordId), member -> {
+            resolutions.labels("fetched").inc();
+            waiters.found(member);
+        }, error -> {
+            if (isNotInGuild(error)) {
+                notInGuild(discordId, waiters);
+                return;
+            }
+            // Anything else says nothing about membership: fail so the action is retried
+            resolutions.labels("error").inc();
+            waiters.failed(error);
+        });
+    }
+
+    private void notInGuild(String discordId, Pending waiters) {
+        long now = System.currentTimeMillis();
+        notInGuild.values().removeIf(until -> until <= now);
+        notInGuild.put(discordId, now + notInGuildTtl);
+        resolutions.labels("not_in_guild").inc();
+        waiters.missing();
+    }
+
+    private static boolean isNotInGuild(Throwable error) {
+        if (!(error instanceof ErrorResponseException)) {
+            return false;
+        }
+        ErrorResponse response = ((ErrorResponseException) error).getErrorResponse();
+        return response == ErrorResponse.UNKNOWN_MEMBER || response == ErrorResponse.UNKNOWN_USER;
+    }
+
+    /**
+     * Callbacks waiting on one ID
+     */
+    private static class Pending {
+        private final List<Consumer<Member>> found = new ArrayList<>(1);
+        private final List<Runnable> missing = new ArrayList<>(1);
+        private final List<Consumer<Throwable>> failed = new ArrayList<>(1);
+
+        void add(Consumer<Member> onFound, Runnable onMissing, Consumer<Throwable> onFailed) {
+            found.add(onFound);
+            missing.add(onMissing);
+            failed.add(onFailed);
+        }
+
+        void found(Member member) {
+            found.forEach(callback -> callback.accept(member));
+        }
+
+        void missing() {
+            missing.forEach(Runnable::run);
+        }
+
+        void failed(Throwable error) {
+            failed.forEach(callback -> callback.accept(error));
+        }
+    }
+}
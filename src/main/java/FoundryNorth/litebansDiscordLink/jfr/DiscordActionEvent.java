@@ -0,0 +1,30 @@
+package FoundryNorth.litebansDiscordLink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Discord REST action, spanning from when it was issued to when it completed
+ */
+@Name("litebansdiscordlink.DiscordAction")
+@Label("Discord Action")
+@Category({ "LitebansDiscordLink", "Discord" })
+@Description("A JDA REST action from queue to completion callback")
+@Enabled(false)
+@StackTrace(false)
+public class DiscordActionEvent extends Event {
+
+    @Label("Kind")
+    public String kind;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Error")
+    public String error;
+}
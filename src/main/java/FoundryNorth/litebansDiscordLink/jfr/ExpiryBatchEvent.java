@@ -0,0 +1,25 @@
+package FoundryNorth.litebansDiscordLink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One run of the punishment expiry task
+ */
+@Name("litebansdiscordlink.ExpiryBatch")
+@Label("Expiry Batch")
+@Category({ "LitebansDiscordLink", "Tracker" })
+@Enabled(false)
+@StackTrace(false)
+public class ExpiryBatchEvent extends Event {
+
+    @Label("Expired Entries")
+    public int expired;
+
+    @Label("Batches Claimed")
+    public int batches;
+}
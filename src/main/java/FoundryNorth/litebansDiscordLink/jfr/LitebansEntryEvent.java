@@ -0,0 +1,34 @@
+package FoundryNorth.litebansDiscordLink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A LiteBans entry event received and processed by the listener
+ */
+@Name("litebansdiscordlink.LitebansEntry")
+@Label("LiteBans Entry Received")
+@Category({ "LitebansDiscordLink", "LiteBans" })
+@Description("Processing of a LiteBans entryAdded/entryRemoved callback")
+@Enabled(false)
+@StackTrace(false)
+public class LitebansEntryEvent extends Event {
+
+    @Label("Entry ID")
+    public long entryId;
+
+    @Label("Entry Type")
+    public String entryType;
+
+    @Label("Action")
+    @Description("added or removed")
+    public String action;
+
+    @Label("Player UUID")
+    public String playerUuid;
+}
@@ -0,0 +1,25 @@
+package FoundryNorth.litebansDiscordLink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A batch append to the punishment log file
+ */
+@Name("litebansdiscordlink.LogWrite")
+@Label("Punishment Log Write")
+@Category({ "LitebansDiscordLink", "Logging" })
+@Enabled(false)
+@StackTrace(false)
+public class LogWriteEvent extends Event {
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Characters")
+    public long characters;
+}
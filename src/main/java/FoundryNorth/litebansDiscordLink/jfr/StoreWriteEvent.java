@@ -0,0 +1,28 @@
+package FoundryNorth.litebansDiscordLink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A write to the punishment store
+ */
+@Name("litebansdiscordlink.StoreWrite")
+@Label("Store Write")
+@Category({ "LitebansDiscordLink", "Tracker" })
+@Enabled(false)
+@StackTrace(false)
+public class StoreWriteEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Discord ID")
+    public String discordId;
+
+    @Label("Punishment Type")
+    public String punishmentType;
+}
@@ -0,0 +1,28 @@
+package FoundryNorth.litebansDiscordLink.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A punishment lookup by Discord ID
+ */
+@Name("litebansdiscordlink.TrackerLookup")
+@Label("Tracker Lookup")
+@Category({ "LitebansDiscordLink", "Tracker" })
+@Enabled(false)
+@StackTrace(false)
+public class TrackerLookupEvent extends Event {
+
+    @Label("Discord ID")
+    public String discordId;
+
+    @Label("Found")
+    public boolean found;
+
+    @Label("Punishment Type")
+    public String punishmentType;
+}
@@ -0,0 +1,246 @@
+package FoundryNorth.litebansDiscordLink.listener;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.DatabaseManager;
+import github.scarsz.discordsrv.DiscordSRV;
+import litebans.api.Database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks every DiscordSRV-linked account for an active LiteBans ban or mute and enforces it.
+ * Accounts are walked in Discord ID order in batches, each batch checked with one set-based
+ * query per LiteBans table. Batches run in parallel waves and a cursor is stored after each
+ * wave so an interrupted backfill resumes where it stopped. The waves run on a pool owned by the
+ * plugin's scheduler, so a shutdown finishes the current wave and stops before the database closes.
+ */
+public class LinkedAccountBackfill {
+
+    private static final String CURSOR_KEY = "backfill.cursor";
+
+    private final LitebansDiscordLink plugin;
+    private final DatabaseManager database;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger checked = new AtomicInteger();
+    private final AtomicInteger applied = new AtomicInteger();
+    private volatile int total;
+
+    public LinkedAccountBackfill(LitebansDiscordLink plugin, DatabaseManager database) {
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    /**
+     * Start a backfill in the background
+     *
+     * @param restart Ignore any stored cursor and start from the beginning
+     * @return false if a backfill is already running
+     */
+    public boolean start(boolean restart) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        checked.set(0);
+        applied.set(0);
+        total = 0;
+        plugin.getScheduler().runAsync(() -> {
+            try {
+                run(restart);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Describe the progress of the current or last backfill
+     */
+    public String getProgress() {
+        return checked.get() + "/" + total + " linked account(s) checked, " + applied.get() + " punishment(s) applied";
+    }
+
+    private void run(boolean restart) {
+        int batchSize = Math.max(1, plugin.getConfig().getInt("backfill.batch-size", 500));
+        int parallelism = Math.max(1, plugin.getConfig().getInt("backfill.parallelism", 2));
+        long pauseMillis = plugin.getConfig().getLong("backfill.pause-between-batches", 250);
+        boolean notify = plugin.getConfig().getBoolean("backfill.notify", false);
+
+        NavigableMap<String, UUID> accounts = new TreeMap<>(
+                DiscordSRV.getPlugin().getAccountLinkManager().getLinkedAccounts());
+
+        String cursor = null;
+        try {
+            cursor = restart ? null : database.getState(CURSOR_KEY);
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not read backfill cursor, starting from the beginning: " + e.getMessage());
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            accounts = accounts.tailMap(cursor, false);
+            plugin.getLogger().info("Resuming backfill after Discord ID " + cursor);
+        }
+
+        total = accounts.size();
+        plugin.getLogger().info("Backfill started: " + total + " linked account(s) to check");
+
+        List<NavigableMap<String, UUID>> batches = partition(accounts, batchSize);
+        ExecutorService executor = plugin.getScheduler().newPool("Backfill", parallelism);
+
+        try {
+            for (int i = 0; i < batches.size() && !isStopping(); i += parallelism) {
+                List<NavigableMap<String, UUID>> wave = batches.subList(i, Math.min(i + parallelism, batches.size()));
+                List<Future<?>> futures = new ArrayList<>();
+                for (Map<String, UUID> batch : wave) {
+                    futures.add(executor.submit(() -> processBatch(batch, notify)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+                // Every batch up to here is done: persist the cursor
+                database.setState(CURSOR_KEY, wave.get(wave.size() - 1).lastKey());
+
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+
+            if (!isStopping()) {
+                database.setState(CURSOR_KEY, "");
+                plugin.getLogger().info("Backfill complete: " + getProgress());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            plugin.getLogger().severe("Backfill stopped: " + e.getMessage() + " (" + getProgress()
+                    + "). Run /ldl backfill again to resume.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean isStopping() {
+        return !plugin.isEnabled() || plugin.getScheduler().isStopping();
+    }
+
+    /**
+     * Check one batch of linked accounts against LiteBans and enforce what is found
+     */
+    private void processBatch(Map<String, UUID> batch, boolean notify) {
+        Map<String, String> uuidToDiscord = new HashMap<>();
+        for (Map.Entry<String, UUID> entry : batch.entrySet()) {
+            uuidToDiscord.put(entry.getValue().toString(), entry.getKey());
+        }
+
+        try {
+            // Bans take priority over mutes, as for newly linked accounts
+            Map<String, ActiveEntry> found = queryActive("{mutes}", "MUTE", uuidToDiscord.keySet());
+            found.putAll(queryActive("{bans}", "BAN", uuidToDiscord.keySet()));
+
+            for (Map.Entry<String, ActiveEntry> entry : found.entrySet()) {
+                UUID uuid = UUID.fromString(entry.getKey());
+                ActiveEntry active = entry.getValue();
+                String playerName = Database.get().getPlayerName(uuid);
+                if (playerName == null) {
+                    playerName = uuid.toString().substring(0, 8);
+                }
+
+                boolean wasApplied = plugin.getDiscordManager().applyRetroactivePunishment(
+                        uuidToDiscord.get(entry.getKey()), uuid, playerName, active.type, active.reason,
+                        active.until, notify, "by backfill");
+                if (wasApplied) {
+                    applied.incrementAndGet();
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("LiteBans query failed: " + e.getMessage(), e);
+        }
+
+        checked.addAndGet(batch.size());
+    }
+
+    /**
+     * Find active, unexpired entries for a set of UUIDs in one query
+     *
+     * @return Map of UUID to the longest-lasting active entry
+     */
+    private Map<String, ActiveEntry> queryActive(String table, String type, Set<String> uuids)
+            throws SQLException {
+        Map<String, ActiveEntry> found = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(uuids.size(), "?"));
+        String sql = "SELECT uuid, reason, until FROM " + table +
+                " WHERE active = 1 AND uuid IN (" + placeholders + ") AND (until <= 0 OR until > ?)";
+
+        try (PreparedStatement stmt = Database.get().prepareStatement(sql)) {
+            int index = 1;
+            for (String uuid : uuids) {
+                stmt.setString(index++, uuid);
+            }
+            stmt.setLong(index, System.currentTimeMillis());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long until = Math.max(0, rs.getLong("until")); // 0 for permanent
+                    ActiveEntry entry = new ActiveEntry(type, rs.getString("reason"), until);
+                    found.merge(rs.getString("uuid"), entry, (a, b) -> a.outlasts(b) ? a : b);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static List<NavigableMap<String, UUID>> partition(NavigableMap<String, UUID> accounts, int size) {
+        List<NavigableMap<String, UUID>> batches = new ArrayList<>();
+        TreeMap<String, UUID> current = new TreeMap<>();
+        for (Map.Entry<String, UUID> entry : accounts.entrySet()) {
+            current.put(entry.getKey(), entry.getValue());
+            if (current.size() == size) {
+                batches.add(current);
+                current = new TreeMap<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /**
+     * An active LiteBans entry found for a player
+     */
+    private static class ActiveEntry {
+        final String type;
+        final String reason;
+        final long until; // 0 for permanent
+
+        ActiveEntry(String type, String reason, long until) {
+            this.type = type;
+            this.reason = reason;
+            this.until = until;
+        }
+
+        boolean outlasts(ActiveEntry other) {
+            return until == 0 || (other.until != 0 && until >= other.until);
+        }
+    }
+}
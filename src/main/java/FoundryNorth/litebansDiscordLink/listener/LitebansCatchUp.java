@@ -0,0 +1,276 @@
+package FoundryNorth.litebansDiscordLink.listener;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.DatabaseManager;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
+import litebans.api.Database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays LiteBans bans and mutes that were added while this plugin was not listening
+ * (server restarts, punishments issued on a proxy or another server).
+ * The highest processed LiteBans entry ID per table is stored as a watermark; newer rows are
+ * streamed in bounded pages and fed through the same pipeline as live events. IDs are assigned
+ * before LiteBans commits, so a window below the watermark is read again for late rows.
+ *
+ * <p>Unbans and unmutes change rows below the watermark, so on startup the rows removed since
+ * the last run are replayed as well.</p>
+ */
+public class LitebansCatchUp {
+
+    private static final String[][] TABLES = { { "ban", "{bans}" }, { "mute", "{mutes}" } };
+    private static final String CHECKED_AT_KEY = "catchup.checked-at";
+    private static final long REMOVAL_GRACE = TimeUnit.MINUTES.toMillis(5); // Clock drift and slow commits
+
+    private final LitebansDiscordLink plugin;
+    private final DatabaseManager database;
+    private final LitebansListener listener;
+    private final int pageSize;
+    private final int rescanWindow;
+    private final Counter replayed;
+    private final Map<String, Set<Long>> processedIds = new HashMap<>(); // Per type, within the rescan window
+    private boolean removalsChecked;
+
+    public LitebansCatchUp(LitebansDiscordLink plugin, DatabaseManager database, LitebansListener listener) {
+        this.plugin = plugin;
+        this.database = database;
+        this.listener = listener;
+        this.pageSize = Math.max(1, plugin.getConfig().getInt("catch-up.page-size", 200));
+        this.rescanWindow = Math.max(0, plugin.getConfig().getInt("catch-up.rescan-window", 100));
+        this.replayed = plugin.getMetrics().counter("ldl_catchup_entries_total",
+                "LiteBans entries processed by catch-up", "type");
+    }
+
+    /**
+     * Process every LiteBans ban and mute newer than the stored watermarks
+     */
+    public synchronized void run() {
+        listener.retryDeferred();
+
+        long now = System.currentTimeMillis();
+        boolean complete = true;
+        if (!removalsChecked) {
+            complete = catchUpRemovals();
+        }
+
+        for (String[] table : TABLES) {
+            try {
+                catchUp(table[0], table[1]);
+            } catch (SQLException e) {
+                complete = false;
+                plugin.getLogger().warning("LiteBans catch-up for " + table[0] + "s failed: " + e.getMessage());
+            }
+        }
+
+        if (complete) {
+            removalsChecked = true;
+            try {
+                database.setState(CHECKED_AT_KEY, Long.toString(now));
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Failed to save LiteBans catch-up position: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Replay bans and mutes removed since the last run, which live events missed while the
+     * server was down and the ID watermark cannot see
+     *
+     * @return false if a table could not be read (retried on the next run)
+     */
+    private boolean catchUpRemovals() {
+        String stored;
+        try {
+            stored = database.getState(CHECKED_AT_KEY);
+        } catch (SQLException e) {
+            plugin.getLogger().warning("LiteBans removal catch-up failed: " + e.getMessage());
+            return false;
+        }
+        if (stored == null) {
+            return true; // First run: nothing was tracked before
+        }
+
+        long since = Long.parseLong(stored) - REMOVAL_GRACE;
+        for (String[] table : TABLES) {
+            try {
+                int processed = 0;
+                long afterId = 0;
+                List<Row> rows;
+                do {
+                    rows = queryRemovedPage(table[1], since, afterId);
+                    for (Row row : rows) {
+                        if (!process(table[0], row)) {
+                            return false;
+                        }
+                        afterId = row.id;
+                    }
+                    processed += rows.size();
+                } while (rows.size() == pageSize && plugin.isEnabled());
+
+                if (processed > 0) {
+                    replayed.labels(table[0]).add(processed);
+                    plugin.getLogger().info("Caught up on " + processed + " LiteBans " + table[0]
+                            + "(s) removed while offline");
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("LiteBans removal catch-up for " + table[0] + "s failed: "
+                        + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void catchUp(String type, String table) throws SQLException {
+        String stateKey = "catchup." + type;
+        String stored = database.getState(stateKey);
+
+        // First run: start from the current end of the table instead of replaying history
+        if (stored == null) {
+            long head = queryMaxId(table);
+            database.setState(stateKey, Long.toString(head));
+            if (plugin.isDebug()) {
+                plugin.getLogger().info("LiteBans catch-up for " + type + "s starting at entry " + head);
+            }
+            return;
+        }
+
+        long watermark = Long.parseLong(stored);
+        Set<Long> seen = processedIds.computeIfAbsent(type, key -> new TreeSet<>());
+        long cursor = Math.max(0, watermark - rescanWindow);
+        int processed = 0;
+        boolean deferred = false;
+        while (!deferred) {
+            List<Row> rows = queryPage(table, cursor);
+            for (Row row : rows) {
+                // Rows in the rescan window were usually handled on an earlier run
+                if (!seen.contains(row.id)) {
+                    if (!process(type, row)) {
+                        deferred = true; // Resume from this row once the database is back
+                        break;
+                    }
+                    seen.add(row.id);
+                    processed++;
+                }
+                cursor = row.id;
+            }
+
+            if (cursor > watermark) {
+                watermark = cursor;
+                database.setState(stateKey, Long.toString(watermark));
+            }
+            if (rows.size() < pageSize || !plugin.isEnabled()) {
+                break;
+            }
+        }
+        long windowStart = watermark - rescanWindow;
+        seen.removeIf(id -> id <= windowStart);
+
+        if (processed > 0) {
+            replayed.labels(type).add(processed);
+            plugin.getLogger().info("Caught up on " + processed + " LiteBans " + type + "(s)");
+        }
+    }
+
+    /**
+     * Feed a row through the listener pipeline
+     *
+     * @return false if the database was unavailable and the row has to be tried again later
+     */
+    private boolean process(String type, Row row) {
+        if (row.uuid == null) {
+            return true;
+        }
+        try {
+            UUID.fromString(row.uuid);
+        } catch (IllegalArgumentException e) {
+            return true; // IP-only or malformed entry
+        }
+
+        if (row.active && (row.until <= 0 || row.until > System.currentTimeMillis())) {
+            return listener.processAdded(row.id, type, row.uuid, row.reason, Math.max(0, row.until));
+        } else if (!row.active) {
+            return listener.processRemoved(row.id, type, row.uuid);
+        }
+        return true;
+    }
+
+    private long queryMaxId(String table) throws SQLException {
+        try (PreparedStatement stmt = Database.get().prepareStatement("SELECT COALESCE(MAX(id), 0) FROM " + table);
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private List<Row> queryPage(String table, long afterId) throws SQLException {
+        String sql = "SELECT id, uuid, reason, until, active FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?";
+
+        try (PreparedStatement stmt = Database.get().prepareStatement(sql)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, pageSize);
+            return readRows(stmt);
+        }
+    }
+
+    /**
+     * Read a page of entries removed since a time, skipping players who have been punished again
+     * since (their current punishment must stay)
+     */
+    private List<Row> queryRemovedPage(String table, long since, long afterId) throws SQLException {
+        String sql = "SELECT r.id, r.uuid, r.reason, r.until, r.active FROM " + table + " r" +
+                " WHERE r.active = 0 AND r.removed_by_date >= ? AND r.id > ?" +
+                " AND NOT EXISTS (SELECT 1 FROM " + table + " a WHERE a.uuid = r.uuid" +
+                " AND a.active = 1 AND (a.until <= 0 OR a.until > ?))" +
+                " ORDER BY r.id LIMIT ?";
+
+        try (PreparedStatement stmt = Database.get().prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(since));
+            stmt.setLong(2, afterId);
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.setInt(4, pageSize);
+            return readRows(stmt);
+        }
+    }
+
+    private static List<Row> readRows(PreparedStatement stmt) throws SQLException {
+        List<Row> rows = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(new Row(rs.getLong("id"), rs.getString("uuid"), rs.getString("reason"),
+                        rs.getLong("until"), rs.getBoolean("active")));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * A LiteBans ban or mute row
+     */
+    private static class Row {
+        final long id;
+        final String uuid;
+        final String reason;
+        final long until; // 0 or -1 for permanent
+        final boolean active;
+
+        Row(long id, String uuid, String reason, long until, boolean active) {
+            this.id = id;
+            this.uuid = uuid;
+            this.reason = reason;
+            this.until = until;
+            this.active = active;
+        }
+    }
+}
@@ -1,21 +1,54 @@
 package FoundryNorth.litebansDiscordLink.listener;
 
 import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.DatabaseManager;
+import FoundryNorth.litebansDiscordLink.jfr.LitebansEntryEvent;
+import FoundryNorth.litebansDiscordLink.metrics.Counter;
 import litebans.api.Database;
 import litebans.api.Entry;
 import litebans.api.Events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 /**
  * Listens for Litebans punishment events using the Events API
  */
 public class LitebansListener {
 
+    private static final int RECENT_ENTRIES = 10_000;
+    private static final int MAX_BUFFERED = 10_000;
+    private static final long CLAIM_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_ATTEMPTS = 5;
+
     private final LitebansDiscordLink plugin;
+    private final DatabaseManager database;
+    private final long recentWindow;
+    private final Map<String, Long> recentlyProcessed = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > RECENT_ENTRIES || eldest.getValue() < System.currentTimeMillis() - recentWindow;
+        }
+    };
+    private final Counter duplicates;
+    private final List<Runnable> buffered = new ArrayList<>();
+    private final List<BooleanSupplier> deferred = new ArrayList<>();
+    private final Map<String, Integer> failedAttempts = new HashMap<>();
+    private volatile boolean ready;
     private Events.Listener listener;
 
-    public LitebansListener(LitebansDiscordLink plugin) {
+    public LitebansListener(LitebansDiscordLink plugin, DatabaseManager database) {
         this.plugin = plugin;
+        this.database = database;
+        this.recentWindow = TimeUnit.MINUTES.toMillis(plugin.getConfig().getLong("dedup.memory-window", 60));
+        this.duplicates = plugin.getMetrics().counter("ldl_litebans_duplicates_total",
+                "LiteBans events skipped because they were already handled", "source");
     }
 
     /**
@@ -25,54 +58,89 @@ public class LitebansListener {
         listener = new Events.Listener() {
             @Override
             public void entryAdded(Entry entry) {
-                String uuid = entry.getUuid();
-                if (uuid == null) {
-                    return;
-                }
-
-                String type = entry.getType();
-                UUID playerUuid = UUID.fromString(entry.getUuid());
-                String playerName = Database.get().getPlayerName(playerUuid); // Name of the punished player
-                String reason = entry.getReason();
-                long durationEnd = entry.getDateEnd();
-
-                switch (type) {
-                    case "ban":
-                        handleBan(uuid, playerName, reason, durationEnd);
-                        break;
-                    case "mute":
-                        handleMute(uuid, playerName, reason, durationEnd);
-                        break;
-                    case "warn":
-                        handleWarn(uuid, playerName, reason);
-                        break;
-                }
+                dispatch(() -> runOrDefer(() -> processAdded(entry.getId(), entry.getType(), entry.getUuid(),
+                        entry.getReason(), entry.getDateEnd())));
             }
 
             @Override
             public void entryRemoved(Entry entry) {
-                String uuid = entry.getUuid();
-                if (uuid == null) {
+                dispatch(() -> runOrDefer(() -> processRemoved(entry.getId(), entry.getType(), entry.getUuid())));
+            }
+        };
+
+        Events.get().register(listener);
+        plugin.getLogger().info("Litebans event listener registered");
+
+        // Drop shared markers once no server can receive the event again
+        long retention = TimeUnit.HOURS.toMillis(plugin.getConfig().getLong("dedup.marker-retention", 24));
+        plugin.getScheduler().runAsyncTimer(() -> {
+            int pruned = database.pruneEntryMarkers(System.currentTimeMillis() - retention);
+            if (pruned > 0 && plugin.isDebug()) {
+                plugin.getLogger().info("Pruned " + pruned + " processed entry marker(s)");
+            }
+        }, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Start handling events once the database is ready, beginning with those that arrived before
+     */
+    public void ready() {
+        List<Runnable> pending;
+        synchronized (buffered) {
+            ready = true;
+            pending = new ArrayList<>(buffered);
+            buffered.clear();
+        }
+
+        if (!pending.isEmpty()) {
+            plugin.getLogger().info("Handling " + pending.size() + " LiteBans event(s) received during startup");
+            pending.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Handle an event now, or hold it until {@link #ready()} while the plugin is starting
+     */
+    private void dispatch(Runnable event) {
+        if (!ready) {
+            synchronized (buffered) {
+                if (!ready) {
+                    // Past the limit, the catch-up task finds the events in the LiteBans tables instead
+                    if (buffered.size() < MAX_BUFFERED) {
+                        buffered.add(event);
+                    }
                     return;
                 }
+            }
+        }
+        event.run();
+    }
 
-                String type = entry.getType();
-                UUID playerUuid = UUID.fromString(entry.getUuid());
-                String playerName = Database.get().getPlayerName(playerUuid); // Name of the punished player
-
-                switch (type) {
-                    case "ban":
-                        handleUnban(uuid, playerName);
-                        break;
-                    case "mute":
-                        handleUnmute(uuid, playerName);
-                        break;
+    /**
+     * Handle a live event, keeping it for {@link #retryDeferred()} if the database could not
+     * decide which server handles it
+     */
+    private void runOrDefer(BooleanSupplier event) {
+        if (!event.getAsBoolean()) {
+            synchronized (deferred) {
+                // Past the limit, the catch-up task finds the events in the LiteBans tables instead
+                if (deferred.size() < MAX_BUFFERED) {
+                    deferred.add(event);
                 }
             }
-        };
+        }
+    }
 
-        Events.get().register(listener);
-        plugin.getLogger().info("Litebans event listener registered");
+    /**
+     * Try the events deferred while the database was unavailable again
+     */
+    public void retryDeferred() {
+        List<BooleanSupplier> pending;
+        synchronized (deferred) {
+            pending = new ArrayList<>(deferred);
+            deferred.clear();
+        }
+        pending.forEach(this::runOrDefer);
     }
 
     /**
@@ -85,6 +153,149 @@ public class LitebansListener {
         }
     }
 
+    /**
+     * Process an added LiteBans entry (from a live event or catch-up)
+     *
+     * @param durationEnd Expiry timestamp, 0 for permanent
+     * @return false if the database was unavailable and the entry has to be tried again later
+     */
+    boolean processAdded(long entryId, String type, String uuid, String reason, long durationEnd) {
+        if (uuid == null) {
+            return true;
+        }
+        return handleOnce("added", type, entryId, () -> handleAdded(entryId, type, uuid, reason, durationEnd));
+    }
+
+    private void handleAdded(long entryId, String type, String uuid, String reason, long durationEnd) {
+        LitebansEntryEvent event = new LitebansEntryEvent();
+        event.begin();
+
+        UUID playerUuid = UUID.fromString(uuid);
+        String playerName = Database.get().getPlayerName(playerUuid); // Name of the punished player
+
+        switch (type) {
+            case "ban":
+                handleBan(uuid, playerName, reason, durationEnd);
+                break;
+            case "mute":
+                handleMute(uuid, playerName, reason, durationEnd);
+                break;
+            case "warn":
+                handleWarn(uuid, playerName, reason);
+                break;
+        }
+
+        commit(event, entryId, type, uuid, "added");
+    }
+
+    /**
+     * Process a removed LiteBans entry (from a live event or catch-up)
+     *
+     * @return false if the database was unavailable and the entry has to be tried again later
+     */
+    boolean processRemoved(long entryId, String type, String uuid) {
+        if (uuid == null) {
+            return true;
+        }
+        return handleOnce("removed", type, entryId, () -> handleRemoved(entryId, type, uuid));
+    }
+
+    private void handleRemoved(long entryId, String type, String uuid) {
+        LitebansEntryEvent event = new LitebansEntryEvent();
+        event.begin();
+
+        UUID playerUuid = UUID.fromString(uuid);
+        String playerName = Database.get().getPlayerName(playerUuid); // Name of the punished player
+
+        switch (type) {
+            case "ban":
+                handleUnban(uuid, playerName);
+                break;
+            case "mute":
+                handleUnmute(uuid, playerName);
+                break;
+        }
+
+        commit(event, entryId, type, uuid, "removed");
+    }
+
+    /**
+     * Handle an entry once, even if LiteBans delivers it again, delivers it to several servers,
+     * or catch-up finds it later. Recently seen entries are answered from memory; otherwise a
+     * shared claim in the database decides which server handles it. The claim is only marked
+     * done once handling succeeds; if handling fails it is released and the entry is tried again
+     * later, up to {@link #MAX_ATTEMPTS} times.
+     *
+     * @return false if the entry was not handled and has to be tried again later
+     */
+    private boolean handleOnce(String action, String type, long entryId, Runnable handler) {
+        String key = action + ":" + type + ":" + entryId;
+        synchronized (recentlyProcessed) {
+            if (recentlyProcessed.putIfAbsent(key, System.currentTimeMillis()) != null) {
+                duplicates.labels("memory").inc();
+                return true;
+            }
+        }
+
+        DatabaseManager.Claim claim = database.claimEntry(key, CLAIM_TIMEOUT);
+        if (claim == DatabaseManager.Claim.TAKEN) {
+            duplicates.labels("database").inc();
+            if (plugin.isDebug()) {
+                plugin.getLogger().info("LiteBans entry " + key + " already handled, skipping");
+            }
+            return true;
+        }
+        if (claim == DatabaseManager.Claim.UNAVAILABLE) {
+            // Handling without a claim could enforce and announce it on every server
+            forget(key);
+            return false;
+        }
+
+        try {
+            handler.run();
+        } catch (RuntimeException e) {
+            int attempts;
+            synchronized (failedAttempts) {
+                attempts = failedAttempts.merge(key, 1, Integer::sum);
+            }
+            if (attempts < MAX_ATTEMPTS) {
+                forget(key);
+                database.releaseEntry(key);
+                plugin.getLogger().warning("Failed to handle LiteBans entry " + key + " (attempt " + attempts
+                        + "), will retry: " + e.getMessage());
+                return false;
+            }
+            // Keep one entry that always fails from holding back catch-up
+            plugin.getLogger().severe("Giving up on LiteBans entry " + key + " after " + attempts
+                    + " attempts: " + e.getMessage());
+        }
+        synchronized (failedAttempts) {
+            failedAttempts.remove(key);
+        }
+        database.completeEntry(key);
+        return true;
+    }
+
+    private void forget(String key) {
+        synchronized (recentlyProcessed) {
+            recentlyProcessed.remove(key);
+        }
+    }
+
+    /**
+     * Commit a JFR event for a processed entry (no-op unless the event is enabled)
+     */
+    private void commit(LitebansEntryEvent event, long entryId, String type, String uuid, String action) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.entryId = entryId;
+            event.entryType = type;
+            event.action = action;
+            event.playerUuid = uuid;
+            event.commit();
+        }
+    }
+
     private void handleBan(String uuid, String playerName, String reason, long durationEnd) {
         // Calculate duration in milliseconds from now until end time
         // durationEnd is 0 for permanent bans, otherwise it's the timestamp when ban
@@ -0,0 +1,61 @@
+package FoundryNorth.litebansDiscordLink.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter backed by a striped accumulator
+ */
+public class Counter extends Metric<Counter.Child> {
+
+    Counter(String name, String help, String[] labelNames) {
+        super(name, help, labelNames);
+    }
+
+    /**
+     * Increment the unlabelled counter
+     */
+    public void inc() {
+        labels().inc();
+    }
+
+    /**
+     * Add to the unlabelled counter
+     */
+    public void add(long amount) {
+        labels().add(amount);
+    }
+
+    @Override
+    protected Child newChild() {
+        return new Child();
+    }
+
+    @Override
+    protected String type() {
+        return "counter";
+    }
+
+    @Override
+    protected void writeChild(StringBuilder out, String labels, Child child) {
+        out.append(getName()).append(wrap(labels)).append(' ').append(child.get()).append('\n');
+    }
+
+    /**
+     * A single labelled counter value
+     */
+    public static class Child {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package FoundryNorth.litebansDiscordLink.metrics;
+
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Gauge whose value is sampled from a supplier at scrape time
+ */
+public class Gauge extends Metric<DoubleSupplier> {
+
+    Gauge(String name, String help, DoubleSupplier supplier) {
+        super(name, help, new String[0]);
+        getChildren().put(List.of(), supplier);
+    }
+
+    public double get() {
+        return labels().getAsDouble();
+    }
+
+    @Override
+    protected DoubleSupplier newChild() {
+        return () -> 0;
+    }
+
+    @Override
+    protected String type() {
+        return "gauge";
+    }
+
+    @Override
+    protected void writeChild(StringBuilder out, String labels, DoubleSupplier child) {
+        out.append(getName()).append(wrap(labels)).append(' ').append(child.getAsDouble()).append('\n');
+    }
+}
@@ -0,0 +1,115 @@
+package FoundryNorth.litebansDiscordLink.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram backed by striped accumulators.
+ * Observations are recorded in nanoseconds and exported in seconds.
+ */
+public class Histogram extends Metric<Histogram.Child> {
+
+    /**
+     * Default buckets for operation latency (seconds)
+     */
+    public static final double[] LATENCY_BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5,
+            5, 10, 30 };
+
+    /**
+     * Default buckets for lag measurements (seconds)
+     */
+    public static final double[] LAG_BUCKETS = { 1, 5, 15, 30, 60, 120, 300, 600, 1800, 3600 };
+
+    private final double[] buckets;
+    private final long[] bucketNanos;
+
+    Histogram(String name, String help, double[] buckets, String[] labelNames) {
+        super(name, help, labelNames);
+        this.buckets = buckets;
+        this.bucketNanos = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            bucketNanos[i] = (long) (buckets[i] * 1_000_000_000L);
+        }
+    }
+
+    /**
+     * Record an observation on the unlabelled histogram
+     */
+    public void observeNanos(long nanos) {
+        labels().observeNanos(nanos);
+    }
+
+    @Override
+    protected Child newChild() {
+        return new Child(bucketNanos);
+    }
+
+    @Override
+    protected String type() {
+        return "histogram";
+    }
+
+    @Override
+    protected void writeChild(StringBuilder out, String labels, Child child) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += child.counts[i].sum();
+            out.append(getName()).append("_bucket{").append(prefix).append("le=\"").append(buckets[i]).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        long count = child.getCount();
+        out.append(getName()).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(count).append('\n');
+        out.append(getName()).append("_sum").append(wrap(labels)).append(' ')
+                .append(child.sumNanos.sum() / 1_000_000_000.0).append('\n');
+        out.append(getName()).append("_count").append(wrap(labels)).append(' ').append(count).append('\n');
+    }
+
+    /**
+     * A single labelled histogram
+     */
+    public static class Child {
+        private final long[] bounds;
+        private final LongAdder[] counts;
+        private final LongAdder overflow = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+
+        Child(long[] bounds) {
+            this.bounds = bounds;
+            this.counts = new LongAdder[bounds.length];
+            for (int i = 0; i < bounds.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            sumNanos.add(nanos);
+            for (int i = 0; i < bounds.length; i++) {
+                if (nanos <= bounds[i]) {
+                    counts[i].increment();
+                    return;
+                }
+            }
+            overflow.increment();
+        }
+
+        /**
+         * Record the time elapsed since a {@link System#nanoTime()} start value
+         */
+        public void observeSince(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            long count = overflow.sum();
+            for (LongAdder bucket : counts) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        public double getMeanMillis() {
+            long count = getCount();
+            return count == 0 ? 0 : (sumNanos.sum() / 1_000_000.0) / count;
+        }
+    }
+}
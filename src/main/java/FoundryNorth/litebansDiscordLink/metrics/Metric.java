@@ -0,0 +1,84 @@
+package FoundryNorth.litebansDiscordLink.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base class for a named metric family with optional labels
+ */
+public abstract class Metric<C> {
+
+    private final String name;
+    private final String help;
+    private final String[] labelNames;
+    private final Map<List<String>, C> children = new ConcurrentHashMap<>();
+
+    protected Metric(String name, String help, String[] labelNames) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+    }
+
+    /**
+     * Get the child for the given label values, creating it on first use
+     */
+    public C labels(String... values) {
+        if (values.length != labelNames.length) {
+            throw new IllegalArgumentException("Metric " + name + " expects " + labelNames.length + " label(s)");
+        }
+        return children.computeIfAbsent(Arrays.asList(values), key -> newChild());
+    }
+
+    protected abstract C newChild();
+
+    protected abstract String type();
+
+    protected abstract void writeChild(StringBuilder out, String labels, C child);
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public Map<List<String>, C> getChildren() {
+        return children;
+    }
+
+    /**
+     * Render this family in Prometheus text exposition format
+     */
+    void writeTo(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type()).append('\n');
+        for (Map.Entry<List<String>, C> entry : children.entrySet()) {
+            writeChild(out, formatLabels(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * Format label values as a Prometheus label set (without braces)
+     */
+    String formatLabels(List<String> values) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < labelNames.length; i++) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(labelNames[i]).append("=\"").append(escape(values.get(i))).append('"');
+        }
+        return labels.toString();
+    }
+
+    static String wrap(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,73 @@
+package FoundryNorth.litebansDiscordLink.metrics;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics registry over a small local HTTP endpoint in Prometheus text format
+ */
+public class MetricsExporter {
+
+    private final LitebansDiscordLink plugin;
+    private final MetricsRegistry registry;
+    private HttpServer server;
+
+    public MetricsExporter(LitebansDiscordLink plugin, MetricsRegistry registry) {
+        this.plugin = plugin;
+        this.registry = registry;
+    }
+
+    /**
+     * Start the HTTP endpoint if enabled in config
+     */
+    public void start() {
+        if (!plugin.getConfig().getBoolean("metrics.http.enabled", false)) {
+            return;
+        }
+
+        String bindAddress = plugin.getConfig().getString("metrics.http.bind-address", "127.0.0.1");
+        int port = plugin.getConfig().getInt("metrics.http.port", 9464);
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+            server.createContext("/metrics", this::handle);
+            server.start();
+            plugin.getLogger().info("Metrics endpoint listening on http://" + bindAddress + ":" + port + "/metrics");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to start metrics endpoint: " + e.getMessage());
+            server = null;
+        }
+    }
+
+    /**
+     * Stop the HTTP endpoint
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
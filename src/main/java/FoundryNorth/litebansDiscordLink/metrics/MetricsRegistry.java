@@ -0,0 +1,76 @@
+package FoundryNorth.litebansDiscordLink.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Holds all plugin metrics and renders them in Prometheus text format
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Metric<?>> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get or create a counter family
+     */
+    public Counter counter(String name, String help, String... labelNames) {
+        return (Counter) metrics.computeIfAbsent(name, key -> new Counter(name, help, labelNames));
+    }
+
+    /**
+     * Get or create a histogram family
+     */
+    public Histogram histogram(String name, String help, double[] buckets, String... labelNames) {
+        return (Histogram) metrics.computeIfAbsent(name, key -> new Histogram(name, help, buckets, labelNames));
+    }
+
+    /**
+     * Register a gauge sampled at scrape time (replaces any existing gauge with the same name)
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(name, help, supplier);
+        metrics.put(name, gauge);
+        return gauge;
+    }
+
+    /**
+     * Render every metric in Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric<?> metric : metrics.values()) {
+            metric.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Build a short human readable summary for the stats command
+     */
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Metric<?> metric : metrics.values()) {
+            if (metric instanceof Counter counter) {
+                for (Map.Entry<List<String>, Counter.Child> entry : counter.getChildren().entrySet()) {
+                    lines.add(label(metric, entry.getKey()) + ": " + entry.getValue().get());
+                }
+            } else if (metric instanceof Histogram histogram) {
+                for (Map.Entry<List<String>, Histogram.Child> entry : histogram.getChildren().entrySet()) {
+                    Histogram.Child child = entry.getValue();
+                    lines.add(label(metric, entry.getKey()) + ": " + child.getCount() + " obs, avg "
+                            + String.format("%.2f", child.getMeanMillis()) + " ms");
+                }
+            } else if (metric instanceof Gauge gauge) {
+                lines.add(metric.getName() + ": " + gauge.get());
+            }
+        }
+        return lines;
+    }
+
+    private String label(Metric<?> metric, List<String> values) {
+        return values.isEmpty() ? metric.getName() : metric.getName() + values;
+    }
+}
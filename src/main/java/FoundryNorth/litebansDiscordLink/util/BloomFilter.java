@@ -0,0 +1,62 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over long keys (Discord IDs).
+ * Answers "definitely not added" or "maybe added" with a false positive rate of about 1% at
+ * the expected number of keys, in roughly 10 bits per key. Keys cannot be removed; rebuild the
+ * filter to drop them. Safe for concurrent adds and lookups.
+ */
+public class BloomFilter {
+
+    private static final int HASHES = 7;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+
+    /**
+     * @param expectedKeys Number of keys the filter is sized for; more keys raise the false positive rate
+     */
+    public BloomFilter(long expectedKeys) {
+        long wanted = Math.max(64, (long) (Math.max(1, expectedKeys) * 9.6));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (wanted + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+    }
+
+    public void add(long key) {
+        long h1 = mix(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long key) {
+        long h1 = mix(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads snowflake IDs, whose low bits vary little, over the whole range
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
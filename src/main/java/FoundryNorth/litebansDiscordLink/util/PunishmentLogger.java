@@ -1,28 +1,44 @@
 package FoundryNorth.litebansDiscordLink.util;
 
 import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import FoundryNorth.litebansDiscordLink.database.PunishmentTracker;
+import FoundryNorth.litebansDiscordLink.jfr.LogWriteEvent;
+import FoundryNorth.litebansDiscordLink.metrics.Histogram;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
- * Handles logging of punishments to a file
+ * Handles logging of punishments to a file.
+ * Entries are queued and appended by a background writer thread so callers never block on disk I/O.
  */
 public class PunishmentLogger {
 
+    private static final String STOP = "\u0000stop";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final LitebansDiscordLink plugin;
     private final File logFile;
-    private final SimpleDateFormat dateFormat;
     private final boolean enabled;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Histogram writeLatency;
+    private Thread writerThread;
 
     public PunishmentLogger(LitebansDiscordLink plugin) {
         this.plugin = plugin;
         this.enabled = plugin.getConfig().getBoolean("logging.enabled", true);
-        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        this.writeLatency = plugin.getMetrics().histogram("ldl_log_write_seconds",
+                "Latency of a punishment log batch write", Histogram.LATENCY_BUCKETS);
+        plugin.getMetrics().gauge("ldl_log_queue_depth", "Log entries waiting to be written", queue::size);
 
         if (enabled) {
             // Create logs directory if it doesn't exist
@@ -40,17 +56,40 @@ public class PunishmentLogger {
                     logFile.createNewFile();
                     writeToFile("=".repeat(80));
                     writeToFile("LitebansDiscordLink Punishment Log");
-                    writeToFile("Log started at: " + dateFormat.format(new Date()));
+                    writeToFile("Log started at: " + DATE_FORMAT.format(LocalDateTime.now()));
                     writeToFile("=".repeat(80));
                 } catch (IOException e) {
                     plugin.getLogger().warning("Failed to create punishment log file: " + e.getMessage());
                 }
             }
+
+            writerThread = new Thread(this::runWriter, "LitebansDiscordLink-LogWriter");
+            writerThread.setDaemon(true);
+            writerThread.start();
         } else {
             this.logFile = null;
         }
     }
 
+    /**
+     * Flush queued entries and stop the writer thread
+     *
+     * @param timeoutMillis How long to wait for the queue to be written
+     */
+    public void close(long timeoutMillis) {
+        if (writerThread == null) {
+            return;
+        }
+
+        queue.add(STOP);
+        try {
+            writerThread.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
     /**
      * Log a punishment being applied
      */
@@ -59,7 +98,7 @@ public class PunishmentLogger {
         if (!enabled)
             return;
 
-        String timestamp = dateFormat.format(new Date());
+        String timestamp = DATE_FORMAT.format(LocalDateTime.now());
         String durationStr = formatDuration(duration);
 
         StringBuilder log = new StringBuilder();
@@ -80,7 +119,7 @@ public class PunishmentLogger {
         if (!enabled)
             return;
 
-        String timestamp = dateFormat.format(new Date());
+        String timestamp = DATE_FORMAT.format(LocalDateTime.now());
 
         StringBuilder log = new StringBuilder();
         log.append("\n").append(timestamp).append(" | PUNISHMENT REMOVED\n");
@@ -92,19 +131,23 @@ public class PunishmentLogger {
     }
 
     /**
-     * Log a punishment expiring automatically
+     * Log a batch of punishments expiring automatically as a single entry
      */
-    public void logExpiry(String discordId, String type, String minecraftName) {
-        if (!enabled)
+    public void logExpiries(Map<String, PunishmentTracker.PunishmentInfo> expired) {
+        if (!enabled || expired.isEmpty())
             return;
 
-        String timestamp = dateFormat.format(new Date());
+        String timestamp = DATE_FORMAT.format(LocalDateTime.now());
 
         StringBuilder log = new StringBuilder();
-        log.append("\n").append(timestamp).append(" | PUNISHMENT EXPIRED\n");
-        log.append("  Type: ").append(type).append("\n");
-        log.append("  Player: ").append(minecraftName != null ? minecraftName : "Unknown").append("\n");
-        log.append("  Discord ID: ").append(discordId).append("\n");
+        for (Map.Entry<String, PunishmentTracker.PunishmentInfo> entry : expired.entrySet()) {
+            PunishmentTracker.PunishmentInfo info = entry.getValue();
+            log.append("\n").append(timestamp).append(" | PUNISHMENT EXPIRED\n");
+            log.append("  Type: ").append(info.getType()).append("\n");
+            log.append("  Player: ").append(info.getMinecraftName() != null ? info.getMinecraftName() : "Unknown")
+                    .append("\n");
+            log.append("  Discord ID: ").append(entry.getKey()).append("\n");
+        }
 
         writeToFile(log.toString());
     }
@@ -116,7 +159,7 @@ public class PunishmentLogger {
         if (!enabled)
             return;
 
-        String timestamp = dateFormat.format(new Date());
+        String timestamp = DATE_FORMAT.format(LocalDateTime.now());
 
         StringBuilder log = new StringBuilder();
         log.append("\n").append(timestamp).append(" | DISCORD ACTION\n");
@@ -152,20 +195,68 @@ public class PunishmentLogger {
     }
 
     /**
-     * Write content to the log file
+     * Queue content to be written to the log file
      */
     private void writeToFile(String content) {
         if (logFile == null)
             return;
 
+        queue.add(content);
+    }
+
+    /**
+     * Writer thread loop: drains the queue and appends each batch in a single write
+     */
+    private void runWriter() {
+        List<String> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            queue.drainTo(batch);
+
+            if (batch.remove(STOP)) {
+                running = false;
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Append a batch of entries to the log file
+     */
+    private void writeBatch(List<String> batch) {
+        long start = System.nanoTime();
+        LogWriteEvent event = new LogWriteEvent();
+        event.begin();
+        long characters = 0;
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true))) {
-            writer.write(content);
-            if (!content.endsWith("\n")) {
-                writer.newLine();
+            for (String content : batch) {
+                writer.write(content);
+                characters += content.length();
+                if (!content.endsWith("\n")) {
+                    writer.newLine();
+                }
             }
             writer.flush();
         } catch (IOException e) {
             plugin.getLogger().warning("Failed to write to punishment log: " + e.getMessage());
+        } finally {
+            writeLatency.observeNanos(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.entries = batch.size();
+                event.characters = characters;
+                event.commit();
+            }
         }
     }
 }
@@ -0,0 +1,87 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Bloom filter that drops removed keys by being rebuilt from the full key set.
+ * The current filter keeps answering while a new one is built. Keys added during a rebuild go
+ * into both filters, and adds and the swap share one lock, so a key added while the new filter
+ * is swapped in is never left only in the discarded one. Lookups do not lock.
+ */
+public class RebuildingBloomFilter {
+
+    private final long minimumKeys;
+    private final Object lock = new Object();
+    private volatile BloomFilter current;
+    private BloomFilter next;
+    private long keys;
+    private long nextKeys;
+
+    /**
+     * @param minimumKeys Smallest number of keys a filter is sized for
+     */
+    public RebuildingBloomFilter(long minimumKeys) {
+        this.minimumKeys = Math.max(1, minimumKeys);
+    }
+
+    /**
+     * Check whether a key could have been added.
+     * False is definite; true may be a false positive, and is always the answer until the
+     * first rebuild completes.
+     */
+    public boolean mightContain(long key) {
+        BloomFilter filter = current;
+        return filter == null || filter.mightContain(key);
+    }
+
+    public void add(long key) {
+        synchronized (lock) {
+            if (current != null) {
+                current.add(key);
+                keys++;
+            }
+            if (next != null) {
+                next.add(key);
+                nextKeys++;
+            }
+        }
+    }
+
+    /**
+     * Build a new filter from every key and swap it in
+     *
+     * @param source Feeds every key to the consumer; returns false if it could not read them all
+     * @return false if the source failed (the current filter is kept) or another rebuild is running
+     */
+    public boolean rebuild(Predicate<LongConsumer> source) {
+        BloomFilter fresh;
+        synchronized (lock) {
+            if (next != null) {
+                return false;
+            }
+            // Sized with headroom for keys added before the next rebuild
+            fresh = new BloomFilter(Math.max(minimumKeys, keys * 2));
+            next = fresh;
+            nextKeys = 0;
+        }
+
+        long[] count = new long[1];
+        boolean complete = false;
+        try {
+            complete = source.test(key -> {
+                fresh.add(key);
+                count[0]++;
+            });
+        } finally {
+            synchronized (lock) {
+                if (complete) {
+                    current = fresh;
+                    keys = count[0] + nextKeys;
+                }
+                next = null;
+            }
+        }
+        return complete;
+    }
+}
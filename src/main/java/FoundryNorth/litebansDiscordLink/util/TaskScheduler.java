@@ -0,0 +1,230 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import FoundryNorth.litebansDiscordLink.LitebansDiscordLink;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the plugin's work.
+ * Work that touches the Bukkit API runs on the global region scheduler on Folia and on the
+ * Bukkit scheduler otherwise. Everything else (database, LiteBans and Discord work) runs on
+ * the plugin's own worker threads and never occupies a server thread. Work handed off from
+ * Discord event threads runs on a separate, bounded event pool that drops work when full
+ * rather than making the event thread wait. Long jobs that need their own threads get a pool
+ * from {@link #newPool}, which is stopped along with the rest.
+ */
+public class TaskScheduler {
+
+    private static final boolean FOLIA = isFolia();
+
+    private final LitebansDiscordLink plugin;
+    private final ScheduledExecutorService workers;
+    private final ExecutorService events;
+    private final Set<ExecutorService> pools = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+    private volatile boolean stopped;
+
+    public TaskScheduler(LitebansDiscordLink plugin) {
+        this.plugin = plugin;
+
+        int threads = Math.max(1, plugin.getConfig().getInt("scheduler.worker-threads", 3));
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LitebansDiscordLink-Worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        // On shutdown, repeating tasks stop but delayed one-off work (message and lookup batches) still runs
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(true);
+        this.workers = executor;
+
+        int eventThreads = Math.max(1, plugin.getConfig().getInt("scheduler.event-threads", 2));
+        int eventQueue = Math.max(1, plugin.getConfig().getInt("scheduler.event-queue-size", 1000));
+        AtomicInteger eventCounter = new AtomicInteger();
+        this.events = new ThreadPoolExecutor(eventThreads, eventThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(eventQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "LitebansDiscordLink-Event-" + eventCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run Bukkit API work on the global (main) thread
+     */
+    public void runGlobal(Runnable task) {
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Run Bukkit API work on the global (main) thread after a delay
+     *
+     * @param delayTicks Delay in server ticks
+     */
+    public void runGlobalLater(Runnable task, long delayTicks) {
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(), Math.max(1, delayTicks));
+        } else {
+            Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks);
+        }
+    }
+
+    /**
+     * Run work on a plugin worker thread
+     */
+    public void runAsync(Runnable task) {
+        try {
+            workers.execute(() -> runSafely(task));
+        } catch (RejectedExecutionException e) {
+            runWhileStopping(task);
+        }
+    }
+
+    /**
+     * Run work on a plugin worker thread after a delay
+     */
+    public void runAsyncLater(Runnable task, long delay, TimeUnit unit) {
+        try {
+            workers.schedule(() -> runSafely(task), delay, unit);
+        } catch (RejectedExecutionException e) {
+            runWhileStopping(task);
+        }
+    }
+
+    /**
+     * Run work handed off from a Discord event thread on the bounded event pool
+     *
+     * @return false if the pool's queue is full (or shutting down) and the work was dropped
+     */
+    public boolean tryRunEvent(Runnable task) {
+        try {
+            events.execute(() -> runSafely(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a pool of threads for a long job, drained and stopped by {@link #shutdown} within
+     * the same deadline as the workers. The caller shuts it down when the job is done.
+     *
+     * @throws RejectedExecutionException If the scheduler is stopping
+     */
+    public ExecutorService newPool(String name, int threads) {
+        if (stopping) {
+            throw new RejectedExecutionException("Scheduler is stopping");
+        }
+        pools.removeIf(ExecutorService::isTerminated);
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "LitebansDiscordLink-" + name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pools.add(pool);
+        return pool;
+    }
+
+    /**
+     * Check whether shutdown has begun, so long jobs can stop between steps
+     */
+    public boolean isStopping() {
+        return stopping;
+    }
+
+    /**
+     * Run work repeatedly on a plugin worker thread.
+     * The period is measured from the end of one run to the start of the next, so slow runs never overlap.
+     */
+    public void runAsyncTimer(Runnable task, long delay, long period, TimeUnit unit) {
+        if (!workers.isShutdown()) {
+            workers.scheduleWithFixedDelay(() -> runSafely(task), delay, Math.max(1, period), unit);
+        }
+    }
+
+    /**
+     * Stop repeating work and let queued and delayed tasks finish, up to the timeout.
+     * Work submitted by those tasks while stopping runs straight away on the submitting thread.
+     *
+     * @return false if tasks were still running at the timeout (they are interrupted)
+     */
+    public boolean shutdown(long timeoutMillis) {
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().cancelTasks(plugin);
+        } else {
+            Bukkit.getScheduler().cancelTasks(plugin);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+        stopping = true;
+        List<ExecutorService> executors = new ArrayList<>(List.of(events, workers));
+        executors.addAll(pools);
+        executors.forEach(ExecutorService::shutdown);
+        boolean finished = true;
+        try {
+            for (ExecutorService executor : executors) {
+                finished &= executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            finished = false;
+            Thread.currentThread().interrupt();
+        }
+        if (!finished) {
+            executors.forEach(ExecutorService::shutdownNow);
+        }
+        stopped = true;
+        return finished;
+    }
+
+    /**
+     * Work submitted after shutdown began: finish it rather than drop it, until the shutdown deadline has passed
+     */
+    private void runWhileStopping(Runnable task) {
+        if (!stopped) {
+            runSafely(task);
+        }
+    }
+
+    /**
+     * A repeating task that throws is cancelled by the executor: log instead so it keeps running
+     */
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            plugin.getLogger().severe("Error in scheduled task: " + t);
+            if (plugin.isDebug()) {
+                t.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache with W-TinyLFU style admission.
+ * New entries enter a small LRU window; entries leaving the window only displace an entry of
+ * the main (segmented LRU) region if a frequency sketch says they are requested more often.
+ * This keeps frequently requested keys cached while one-off lookups pass through.
+ */
+public class TinyLfuCache<K, V> {
+
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    /**
+     * @param maximumSize Maximum number of entries held
+     */
+    public TinyLfuCache(int maximumSize) {
+        int size = Math.max(2, maximumSize);
+        this.windowMax = Math.max(1, size / 100);
+        this.mainMax = size - windowMax;
+        this.protectedMax = mainMax * 4 / 5;
+        this.sketch = new FrequencySketch(size);
+    }
+
+    /**
+     * Get a cached value, recording the access
+     *
+     * @return The value, or null if not cached
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key.hashCode());
+
+        V value = window.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = protectedSegment.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        // A second hit promotes an entry from probation to the protected segment
+        value = probation.remove(key);
+        if (value != null) {
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > protectedMax) {
+                Map.Entry<K, V> demoted = removeEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Add or replace a value
+     */
+    public synchronized void put(K key, V value) {
+        if (window.containsKey(key)) {
+            window.put(key, value);
+            return;
+        }
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+            return;
+        }
+        if (probation.containsKey(key)) {
+            probation.put(key, value);
+            return;
+        }
+
+        window.put(key, value);
+        if (window.size() > windowMax) {
+            Map.Entry<K, V> candidate = removeEldest(window);
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Replace a value only if the key is currently cached
+     */
+    public synchronized void replace(K key, V value) {
+        if (window.containsKey(key)) {
+            window.put(key, value);
+        } else if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, value);
+        } else if (probation.containsKey(key)) {
+            probation.put(key, value);
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        if (window.remove(key) == null && protectedSegment.remove(key) == null) {
+            probation.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Move an entry evicted from the window into the main region, if it is worth more than the main region's victim
+     */
+    private void admit(K key, V value) {
+        if (probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(key, value);
+            return;
+        }
+
+        LinkedHashMap<K, V> victims = probation.isEmpty() ? protectedSegment : probation;
+        K victim = victims.keySet().iterator().next();
+        if (sketch.frequency(key.hashCode()) > sketch.frequency(victim.hashCode())) {
+            victims.remove(victim);
+            probation.put(key, value);
+        }
+    }
+
+    private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> map) {
+        Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        Map.Entry<K, V> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters (stored in bytes) that halves itself periodically,
+     * so the popularity estimate follows recent traffic
+     */
+    private static class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(16, maximumSize * 4 - 1)) << 1;
+            this.table = new byte[length];
+            this.mask = length - 1;
+            this.sampleSize = Math.max(10, maximumSize * 10);
+        }
+
+        int frequency(int hash) {
+            int min = MAX_COUNT;
+            for (int i = 0; i < 4; i++) {
+                min = Math.min(min, table[index(hash, i)]);
+            }
+            return min;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = index(hash, i);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int index(int hash, int i) {
+            int h = (hash + i * 0x9E3779B9) * 0x85EBCA6B;
+            h ^= h >>> 16;
+            return h & mask;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (byte) (table[i] >>> 1);
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 40;
+
+    private final AtomicInteger closed = new AtomicInteger();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MILLIS, closed::incrementAndGet);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        assertFalse(breaker.recordFailure());
+        assertFalse(breaker.recordFailure());
+        assertTrue(breaker.allowRequest());
+
+        assertTrue(breaker.recordFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, closed.get());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterCoolDown() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_MILLIS + 10);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, closed.get());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedProbeStartsNewCoolDown() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+
+        assertTrue(breaker.recordFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void probeThatNeverReportsCountsAsFailed() throws InterruptedException {
+        trip();
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest()); // Probe is lost: no success or failure is recorded
+
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertFalse(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void trip() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        assertTrue(breaker.isOpen());
+    }
+}
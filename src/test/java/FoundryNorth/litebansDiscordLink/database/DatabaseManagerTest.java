@@ -0,0 +1,33 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseManagerTest {
+
+    @Test
+    void skipLockedNeedsMySql8() {
+        assertTrue(DatabaseManager.supportsSkipLocked("8.0.36"));
+        assertTrue(DatabaseManager.supportsSkipLocked("8.4.0-commercial"));
+        assertFalse(DatabaseManager.supportsSkipLocked("5.7.44-log"));
+        assertFalse(DatabaseManager.supportsSkipLocked("5.6.51"));
+    }
+
+    @Test
+    void skipLockedNeedsMariaDb106() {
+        assertTrue(DatabaseManager.supportsSkipLocked("10.6.16-MariaDB"));
+        assertTrue(DatabaseManager.supportsSkipLocked("5.5.5-10.11.6-MariaDB-log"));
+        assertTrue(DatabaseManager.supportsSkipLocked("11.2.2-MariaDB"));
+        assertFalse(DatabaseManager.supportsSkipLocked("5.5.5-10.5.23-MariaDB"));
+        assertFalse(DatabaseManager.supportsSkipLocked("10.3.39-MariaDB-0+deb10u1"));
+    }
+
+    @Test
+    void unknownVersionsDoNotSkipLocked() {
+        assertFalse(DatabaseManager.supportsSkipLocked(null));
+        assertFalse(DatabaseManager.supportsSkipLocked(""));
+        assertFalse(DatabaseManager.supportsSkipLocked("unknown"));
+    }
+}
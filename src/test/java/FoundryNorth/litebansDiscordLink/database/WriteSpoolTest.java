@@ -0,0 +1,87 @@
+package FoundryNorth.litebansDiscordLink.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsWritesBackInOrder() throws IOException {
+        WriteSpool spool = new WriteSpool(dir.resolve("spool/pending-writes.log").toFile());
+        assertFalse(spool.hasPending());
+
+        UUID uuid = UUID.randomUUID();
+        spool.appendSave("111", new PunishmentTracker.PunishmentInfo(uuid, "Steve", "MUTE",
+                "spam\tand\nmore ✓", 5000, 1000));
+        spool.appendRemove("222", 2000);
+        spool.appendSave("333", new PunishmentTracker.PunishmentInfo(uuid, null, "BAN", null, -1, 3000));
+        assertTrue(spool.hasPending());
+
+        List<WriteSpool.Entry> entries = spool.read();
+        assertEquals(3, entries.size());
+
+        WriteSpool.Entry save = entries.get(0);
+        assertEquals("111", save.getDiscordId());
+        assertEquals(uuid, save.getInfo().getMinecraftUuid());
+        assertEquals("Steve", save.getInfo().getMinecraftName());
+        assertEquals("MUTE", save.getInfo().getType());
+        assertEquals("spam\tand\nmore ✓", save.getInfo().getReason());
+        assertEquals(5000, save.getInfo().getExpiryTime());
+        assertEquals(1000, save.getIssuedTime());
+
+        WriteSpool.Entry remove = entries.get(1);
+        assertEquals("222", remove.getDiscordId());
+        assertNull(remove.getInfo());
+        assertEquals(2000, remove.getIssuedTime());
+
+        WriteSpool.Entry permanent = entries.get(2);
+        assertNull(permanent.getInfo().getMinecraftName());
+        assertNull(permanent.getInfo().getReason());
+        assertTrue(permanent.getInfo().isPermanent());
+    }
+
+    @Test
+    void consumeKeepsLaterEntries() throws IOException {
+        WriteSpool spool = new WriteSpool(dir.resolve("pending-writes.log").toFile());
+        spool.appendRemove("1", 1);
+        spool.appendRemove("2", 2);
+
+        List<WriteSpool.Entry> replayed = spool.read();
+        spool.appendRemove("3", 3); // Spooled while the replay ran
+        spool.consume(replayed.size());
+
+        List<WriteSpool.Entry> remaining = spool.read();
+        assertEquals(1, remaining.size());
+        assertEquals("3", remaining.get(0).getDiscordId());
+
+        spool.consume(1);
+        assertFalse(spool.hasPending());
+    }
+
+    @Test
+    void readsRemovalsSpooledByOlderVersions() throws IOException {
+        File file = dir.resolve("pending-writes.log").toFile();
+        Files.write(file.toPath(), List.of("REMOVE\t444", "", "UNKNOWN\tline"), StandardCharsets.UTF_8);
+
+        List<WriteSpool.Entry> entries = new WriteSpool(file).read();
+        assertEquals(1, entries.size());
+        assertEquals("444", entries.get(0).getDiscordId());
+        assertEquals(-1, entries.get(0).getIssuedTime());
+    }
+}
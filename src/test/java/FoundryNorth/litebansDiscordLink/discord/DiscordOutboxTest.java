@@ -0,0 +1,53 @@
+package FoundryNorth.litebansDiscordLink.discord;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscordOutboxTest {
+
+    private static final long BASE = 2_000;
+    private static final long MAX = 300_000;
+
+    @Test
+    void backoffDoublesWithinJitterBounds() {
+        for (int attempts = 1; attempts <= 8; attempts++) {
+            long delay = Math.min(MAX, BASE << (attempts - 1));
+            for (int i = 0; i < 1_000; i++) {
+                long backoff = DiscordOutbox.backoff(attempts, BASE, MAX);
+                assertTrue(backoff >= delay / 2 && backoff <= delay,
+                        "attempt " + attempts + ": " + backoff + " outside [" + delay / 2 + ", " + delay + "]");
+            }
+        }
+    }
+
+    @Test
+    void backoffIsCappedAtMaximum() {
+        for (int attempts = 1; attempts <= 100; attempts++) {
+            long backoff = DiscordOutbox.backoff(attempts, BASE, MAX);
+            assertTrue(backoff > 0 && backoff <= MAX, "attempt " + attempts + ": " + backoff);
+        }
+        assertTrue(DiscordOutbox.backoff(Integer.MAX_VALUE, BASE, MAX) >= MAX / 2);
+    }
+
+    @Test
+    void backoffTreatsUnattemptedEntriesAsFirstAttempt() {
+        for (int i = 0; i < 1_000; i++) {
+            long backoff = DiscordOutbox.backoff(0, BASE, MAX);
+            assertTrue(backoff >= BASE / 2 && backoff <= BASE, Long.toString(backoff));
+        }
+    }
+
+    @Test
+    void backoffSpreadsRetries() {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 1_000; i++) {
+            long backoff = DiscordOutbox.backoff(5, BASE, MAX);
+            min = Math.min(min, backoff);
+            max = Math.max(max, backoff);
+        }
+        // Retries after an outage should not all land at once
+        assertTrue(max - min > BASE, "spread " + (max - min));
+    }
+}
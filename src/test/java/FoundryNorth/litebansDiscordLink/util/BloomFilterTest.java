@@ -0,0 +1,63 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final long BASE_ID = 200_000_000_000_000_000L; // Snowflake-sized IDs
+
+    @Test
+    void neverForgetsAnAddedKey() {
+        BloomFilter filter = new BloomFilter(10_000);
+        for (long i = 0; i < 10_000; i++) {
+            filter.add(BASE_ID + i * 4096);
+        }
+        for (long i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(BASE_ID + i * 4096));
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsAboutOnePercent() {
+        BloomFilter filter = new BloomFilter(10_000);
+        for (long i = 0; i < 10_000; i++) {
+            filter.add(BASE_ID + i);
+        }
+
+        int falsePositives = 0;
+        int lookups = 100_000;
+        for (long i = 0; i < lookups; i++) {
+            if (filter.mightContain(BASE_ID + 1_000_000 + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < lookups * 0.02, falsePositives + " false positives");
+    }
+
+    @Test
+    void concurrentAddsAreAllVisible() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(40_000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long offset = t * 10_000L;
+            threads.add(new Thread(() -> {
+                for (long i = 0; i < 10_000; i++) {
+                    filter.add(BASE_ID + offset + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (long i = 0; i < 40_000; i++) {
+            assertTrue(filter.mightContain(BASE_ID + i));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RebuildingBloomFilterTest {
+
+    private static final long BASE_ID = 300_000_000_000_000_000L;
+
+    @Test
+    void cannotRuleAnythingOutBeforeTheFirstRebuild() {
+        RebuildingBloomFilter filter = new RebuildingBloomFilter(100);
+        assertTrue(filter.mightContain(BASE_ID));
+    }
+
+    @Test
+    void rebuildDropsKeysThatAreGone() {
+        RebuildingBloomFilter filter = new RebuildingBloomFilter(100);
+        assertTrue(filter.rebuild(keys -> {
+            keys.accept(BASE_ID);
+            keys.accept(BASE_ID + 1);
+            return true;
+        }));
+        assertTrue(filter.mightContain(BASE_ID + 1));
+        assertFalse(filter.mightContain(BASE_ID + 2));
+
+        assertTrue(filter.rebuild(keys -> {
+            keys.accept(BASE_ID);
+            return true;
+        }));
+        assertTrue(filter.mightContain(BASE_ID));
+        assertFalse(filter.mightContain(BASE_ID + 1));
+    }
+
+    @Test
+    void failedRebuildKeepsTheCurrentFilter() {
+        RebuildingBloomFilter filter = new RebuildingBloomFilter(100);
+        filter.rebuild(keys -> {
+            keys.accept(BASE_ID);
+            return true;
+        });
+
+        assertFalse(filter.rebuild(keys -> false));
+        assertTrue(filter.mightContain(BASE_ID));
+        assertFalse(filter.mightContain(BASE_ID + 1));
+    }
+
+    @Test
+    void keysAddedDuringRebuildsAreKept() throws InterruptedException {
+        RebuildingBloomFilter filter = new RebuildingBloomFilter(200_000);
+        Set<Long> table = ConcurrentHashMap.newKeySet();
+        filter.rebuild(keys -> true);
+
+        // Like the tracker: a key is stored first, then added to the filter
+        int writers = 4;
+        int perWriter = 20_000;
+        CountDownLatch done = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            long offset = BASE_ID + w * 1_000_000L;
+            threads.add(new Thread(() -> {
+                for (long i = 0; i < perWriter; i++) {
+                    table.add(offset + i);
+                    filter.add(offset + i);
+                }
+                done.countDown();
+            }));
+        }
+
+        // Rebuild over and over; keys stored after a rebuild has read past them must survive the swap
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread rebuilder = new Thread(() -> {
+            while (writing.get()) {
+                filter.rebuild(keys -> {
+                    table.forEach(keys::accept);
+                    return true;
+                });
+            }
+        });
+
+        rebuilder.start();
+        threads.forEach(Thread::start);
+        done.await();
+        writing.set(false);
+        rebuilder.join();
+
+        for (long key : table) {
+            assertTrue(filter.mightContain(key), "lost key " + key);
+        }
+    }
+
+    @Test
+    void overlappingRebuildIsRejected() {
+        RebuildingBloomFilter filter = new RebuildingBloomFilter(100);
+        boolean[] nested = new boolean[1];
+        assertTrue(filter.rebuild(keys -> {
+            nested[0] = filter.rebuild(inner -> true);
+            return true;
+        }));
+        assertFalse(nested[0]);
+    }
+}
@@ -0,0 +1,82 @@
+package FoundryNorth.litebansDiscordLink.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void returnsWhatWasPut() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10);
+        cache.put("a", "1");
+        cache.put("a", "2");
+
+        assertEquals("2", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void staysWithinMaximumSize() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100);
+        for (int i = 0; i < 10_000; i++) {
+            cache.get(i);
+            cache.put(i, i);
+        }
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+    }
+
+    @Test
+    void frequentKeysSurviveAScan() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100);
+        for (int round = 0; round < 8; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+
+        // One-off lookups should pass through instead of flushing the hot keys
+        for (int key = 1000; key < 1400; key++) {
+            cache.get(key);
+            cache.put(key, key);
+        }
+
+        int hot = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                hot++;
+            }
+        }
+        assertTrue(hot >= 45, hot + " of 50 hot keys cached");
+    }
+
+    @Test
+    void replaceOnlyTouchesCachedKeys() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10);
+        cache.put("a", "1");
+        cache.replace("a", "2");
+        cache.replace("b", "2");
+
+        assertEquals("2", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void invalidateAndClearRemoveEntries() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}